@@ -0,0 +1,64 @@
+package com.amalitech.todo.benchmark;
+
+import com.amalitech.todo.model.Task;
+import com.amalitech.todo.service.AsyncDynamoDBService;
+import com.amalitech.todo.service.AsyncNotificationService;
+import com.amalitech.todo.service.InMemoryTaskRepository;
+import com.amalitech.todo.service.InMemoryUserMetaService;
+import com.amalitech.todo.service.TaskService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Shared wiring and sample data for the JMH suites.
+ */
+final class BenchmarkFixtures {
+
+    static final String USER_ID = "2f1c7a4e-5b8d-4e0a-9c61-3d2b7f9e8a10";
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * A TaskService over the in-memory engine. The async services are never touched by the
+     * benchmarked paths, so asking for one fails loudly.
+     */
+    static TaskService taskService(InMemoryTaskRepository taskRepository, InMemoryUserMetaService userMetaService) {
+        NoopNotificationService notificationService = new NoopNotificationService();
+        Supplier<AsyncDynamoDBService> noAsyncDynamoDB = () -> {
+            throw new IllegalStateException("Async DynamoDB is not benchmarked");
+        };
+        Supplier<AsyncNotificationService> noAsyncNotifications = () -> {
+            throw new IllegalStateException("Async notifications are not benchmarked");
+        };
+        return new TaskService(() -> taskRepository, () -> notificationService,
+                noAsyncDynamoDB, noAsyncNotifications, () -> userMetaService);
+    }
+
+    static Task task(String userId, int index) {
+        Task task = new Task();
+        task.setUserId(userId);
+        task.setTaskId(String.format("%08d-4b7e-4c1a-8f3d-%012d", index, index));
+        task.setTitle("Task " + index + ": prepare the quarterly report");
+        task.setDescription("Collect the figures from finance, draft the summary and send it for review. "
+                + "Remember the appendix with the regional breakdown.");
+        task.setCompleted(index % 3 == 0);
+        task.setDeadline(1_900_000_000_000L + index * 60_000L);
+        task.setCreatedAt(1_700_000_000_000L + index);
+        task.setVersion(1 + index % 5);
+        if (!task.isCompleted()) {
+            task.setDeadlineBucket(task.getDeadline() / 60_000);
+        }
+        return task;
+    }
+
+    static List<Task> tasks(String userId, int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(task(userId, i));
+        }
+        return tasks;
+    }
+}
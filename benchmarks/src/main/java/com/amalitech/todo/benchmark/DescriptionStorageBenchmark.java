@@ -0,0 +1,172 @@
+package com.amalitech.todo.benchmark;
+
+import com.amalitech.todo.model.Task;
+import com.amalitech.todo.model.TaskDescription;
+import com.amalitech.todo.model.TaskTableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares storing task descriptions as plain strings with the compressed form TaskDescription
+ * uses above its threshold, on note-like descriptions of realistic sizes. For each size it checks
+ * that the description survives the round trip, then reports the stored item size, the capacity
+ * units DynamoDB bills for it, and the per-item cost of mapping it on the write and read paths.
+ * "lazy" maps the item without asking for the description, as summaries and sparse
+ * fieldsets do.
+ */
+public class DescriptionStorageBenchmark {
+
+    private static final int ITEMS = Integer.getInteger("items", 20_000);
+    private static final int PAGE = 100;
+    private static final int[] SIZES = sizes(System.getProperty("sizes", "200,1000,2000,4000,16000,64000"));
+
+    private static final String[] WORDS = ("the a to and of for with on by from review draft send call check update "
+            + "meeting notes client budget report deadline team design api release migration invoice schedule "
+            + "follow up before after friday monday next week quarter plan owner blocked waiting approval "
+            + "discuss agenda numbers summary slides feedback backlog ticket customer support renewal contract "
+            + "vendor estimate testing staging production rollout metrics dashboard onboarding hiring").split(" ");
+
+    public static void main(String[] args) {
+        TableSchema<Task> schema = TaskTableSchema.INSTANCE;
+        System.out.println("Capacity units are per table item; UserStatusDeadlineIndex projects ALL, so each write costs its WCU again there.");
+        System.out.printf("%-8s %-11s %9s %5s %5s %9s %11s %11s %11s%n",
+                "chars", "storage", "itemBytes", "WCU", "RCU", "pageRCU", "write(ns)", "read(ns)", "lazy(ns)");
+
+        for (int size : SIZES) {
+            String text = notes(size, new Random(size));
+            for (boolean compressed : new boolean[] {false, true}) {
+                Task task = BenchmarkFixtures.task(BenchmarkFixtures.USER_ID, 1);
+                Map<String, AttributeValue> item = itemOf(schema, task, text, compressed);
+                String roundTrip = schema.mapToItem(item).getDescription();
+                if (!text.equals(roundTrip)) {
+                    throw new IllegalStateException("Description did not survive the round trip at " + size + " chars");
+                }
+
+                int itemBytes = itemSize(item);
+                System.out.printf("%-8d %-11s %9d %5d %5d %9d %11.0f %11.0f %11.0f%n",
+                        size,
+                        item.get("description").b() != null ? "compressed" : "string",
+                        itemBytes,
+                        units(itemBytes, 1024),
+                        units(itemBytes, 4096),
+                        units((long) itemBytes * PAGE, 4096),
+                        writeNanos(schema, task, text, compressed),
+                        readNanos(schema, item, true),
+                        readNanos(schema, item, false));
+            }
+        }
+    }
+
+    /**
+     * The item as it is written. The plain variant pins the description to a string attribute,
+     * which is what every item looked like before compression.
+     */
+    private static Map<String, AttributeValue> itemOf(TableSchema<Task> schema, Task task, String text, boolean compressed) {
+        if (compressed) {
+            task.setDescription(text);
+        } else {
+            task.setStoredDescription(TaskDescription.fromAttributeValue(AttributeValue.fromS(text)));
+        }
+        return new HashMap<>(schema.itemToMap(task, true));
+    }
+
+    private static double writeNanos(TableSchema<Task> schema, Task task, String text, boolean compressed) {
+        long sink = 0;
+        for (int i = 0; i < ITEMS; i++) {
+            sink += itemOf(schema, task, text, compressed).size();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITEMS; i++) {
+            sink += itemOf(schema, task, text, compressed).size();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println();
+        }
+        return (double) elapsed / ITEMS;
+    }
+
+    private static double readNanos(TableSchema<Task> schema, Map<String, AttributeValue> item, boolean readDescription) {
+        long sink = 0;
+        for (int i = 0; i < ITEMS; i++) {
+            Task task = schema.mapToItem(item);
+            sink += readDescription ? task.getDescription().length() : task.getVersion();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITEMS; i++) {
+            Task task = schema.mapToItem(item);
+            sink += readDescription ? task.getDescription().length() : task.getVersion();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println();
+        }
+        return (double) elapsed / ITEMS;
+    }
+
+    /**
+     * DynamoDB item size: attribute name bytes plus value bytes, numbers at roughly one byte per
+     * two significant digits plus one.
+     */
+    private static int itemSize(Map<String, AttributeValue> item) {
+        int size = 0;
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            AttributeValue value = attribute.getValue();
+            size += attribute.getKey().getBytes(StandardCharsets.UTF_8).length;
+            if (value.s() != null) {
+                size += value.s().getBytes(StandardCharsets.UTF_8).length;
+            } else if (value.n() != null) {
+                size += (value.n().replace("-", "").replace(".", "").length() + 1) / 2 + 1;
+            } else if (value.b() != null) {
+                size += value.b().asByteArrayUnsafe().length;
+            } else {
+                size += 1;
+            }
+        }
+        return size;
+    }
+
+    private static long units(long bytes, int unitSize) {
+        return (bytes + unitSize - 1) / unitSize;
+    }
+
+    /**
+     * Note-like text: short bulleted lines of ordinary words with the odd number and link, which
+     * compresses about as well as what users actually paste.
+     */
+    private static String notes(int length, Random random) {
+        StringBuilder text = new StringBuilder(length + 100);
+        while (text.length() < length) {
+            text.append(random.nextInt(4) == 0 ? "- " : "");
+            int words = 6 + random.nextInt(14);
+            for (int i = 0; i < words; i++) {
+                text.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+                if (random.nextInt(25) == 0) {
+                    text.append(' ').append(random.nextInt(10_000));
+                }
+            }
+            if (random.nextInt(12) == 0) {
+                text.append(" https://wiki.example.com/pages/").append(Integer.toHexString(random.nextInt()));
+            }
+            text.append(random.nextInt(3) == 0 ? ".\n" : ". ");
+        }
+        return text.substring(0, length);
+    }
+
+    private static int[] sizes(String list) {
+        List<Integer> sizes = new ArrayList<>();
+        for (String size : list.split(",")) {
+            sizes.add(Integer.parseInt(size.trim()));
+        }
+        return sizes.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,123 @@
+package com.amalitech.todo.benchmark;
+
+import com.amalitech.todo.handler.ExpiryHandler;
+import com.amalitech.todo.model.Task;
+import com.amalitech.todo.service.InMemoryTaskRepository;
+import com.amalitech.todo.service.InMemoryUserMetaService;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.StreamRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExpiryHandler.processStream over synthetic stream batches. A third of the records are inserts
+ * with a future deadline (no work), a third complete a task (clears its deadline bucket) and a
+ * third move the deadline into the past (queued for an expiry check).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExpiryStreamBenchmark {
+
+    @Param({"10", "100"})
+    int batchSize;
+
+    private final Context context = new BenchmarkContext();
+    private ExpiryHandler expiryHandler;
+    private DynamodbEvent event;
+
+    @Setup
+    public void setUp() {
+        InMemoryTaskRepository taskRepository = new InMemoryTaskRepository();
+        expiryHandler = new ExpiryHandler(BenchmarkFixtures.taskService(taskRepository, new InMemoryUserMetaService()));
+
+        List<DynamodbEvent.DynamodbStreamRecord> records = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            Task task = BenchmarkFixtures.task(BenchmarkFixtures.USER_ID, i);
+            task.setCompleted(false);
+            task.setDeadlineBucket(task.getDeadline() / 60_000);
+            taskRepository.saveTask(task);
+            records.add(record(task, i));
+        }
+        event = new DynamodbEvent();
+        event.setRecords(records);
+    }
+
+    @Benchmark
+    public StreamsEventResponse processStream() {
+        return expiryHandler.processStream(event, context);
+    }
+
+    private static DynamodbEvent.DynamodbStreamRecord record(Task task, int index) {
+        StreamRecord streamRecord = new StreamRecord();
+        streamRecord.setSequenceNumber(String.valueOf(1_000_000 + index));
+        streamRecord.setKeys(Map.of("userId", new AttributeValue(task.getUserId()), "taskId", new AttributeValue(task.getTaskId())));
+
+        String eventName;
+        switch (index % 3) {
+            case 0 -> {
+                eventName = "INSERT";
+                streamRecord.setNewImage(image(task));
+            }
+            case 1 -> {
+                eventName = "MODIFY";
+                streamRecord.setOldImage(image(task));
+                Task completed = BenchmarkFixtures.task(task.getUserId(), index);
+                completed.setCompleted(true);
+                completed.setDeadlineBucket(task.getDeadlineBucket());
+                streamRecord.setNewImage(image(completed));
+            }
+            default -> {
+                eventName = "MODIFY";
+                streamRecord.setOldImage(image(task));
+                Task overdue = BenchmarkFixtures.task(task.getUserId(), index);
+                overdue.setCompleted(false);
+                overdue.setDeadline(1_600_000_000_000L);
+                overdue.setDeadlineBucket(null);
+                streamRecord.setNewImage(image(overdue));
+            }
+        }
+
+        DynamodbEvent.DynamodbStreamRecord record = new DynamodbEvent.DynamodbStreamRecord();
+        record.setEventName(eventName);
+        record.setDynamodb(streamRecord);
+        return record;
+    }
+
+    private static Map<String, AttributeValue> image(Task task) {
+        Map<String, AttributeValue> image = new HashMap<>();
+        image.put("userId", new AttributeValue(task.getUserId()));
+        image.put("taskId", new AttributeValue(task.getTaskId()));
+        image.put("title", new AttributeValue(task.getTitle()));
+        image.put("description", new AttributeValue(task.getDescription()));
+        image.put("completed", new AttributeValue().withBOOL(task.isCompleted()));
+        image.put("deadline", new AttributeValue().withN(Long.toString(task.getDeadline())));
+        image.put("createdAt", new AttributeValue().withN(Long.toString(task.getCreatedAt())));
+        image.put("version", new AttributeValue().withN(Long.toString(task.getVersion())));
+        if (task.getDeadlineBucket() != null) {
+            image.put("deadlineBucket", new AttributeValue().withN(Long.toString(task.getDeadlineBucket())));
+        }
+        return image;
+    }
+}
@@ -0,0 +1,126 @@
+package com.amalitech.todo.benchmark;
+
+import com.amalitech.todo.handler.TaskStreamHandler;
+import com.amalitech.todo.local.LocalServer;
+import com.sun.net.httpserver.HttpServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Drives the full HTTP request path with many concurrent users, each on its own virtual thread,
+ * alternating POST /tasks and GET /tasks. Starts an in-memory LocalServer in process unless
+ * -Dtarget points at a running one. Reports throughput and latency percentiles per route.
+ */
+public class LocalLoadBenchmark {
+
+    private static final int USERS = Integer.getInteger("users", 2000);
+    private static final int SECONDS = Integer.getInteger("seconds", 30);
+    private static final String TARGET = System.getProperty("target");
+
+    public static void main(String[] args) throws Exception {
+        HttpServer server = null;
+        String target = TARGET;
+        if (target == null) {
+            server = LocalServer.start(0, new TaskStreamHandler(LocalServer.inMemoryTaskService()));
+            target = "http://localhost:" + server.getAddress().getPort();
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        URI tasks = URI.create(target + "/tasks");
+        long deadline = System.nanoTime() + Duration.ofSeconds(SECONDS).toNanos();
+
+        List<Future<long[][]>> results = new ArrayList<>(USERS);
+        try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int user = 0; user < USERS; user++) {
+                String userId = "load-user-" + user;
+                results.add(users.submit(() -> runUser(client, tasks, userId, deadline)));
+            }
+        }
+
+        long[][] creates = new long[USERS][];
+        long[][] lists = new long[USERS][];
+        for (int user = 0; user < USERS; user++) {
+            long[][] latencies = results.get(user).get();
+            creates[user] = latencies[0];
+            lists[user] = latencies[1];
+        }
+
+        System.out.printf("%d users for %d s against %s%n", USERS, SECONDS, target);
+        System.out.printf("%-12s %10s %10s %10s %10s %10s%n", "route", "req/s", "p50 (ms)", "p99 (ms)", "p999 (ms)", "max (ms)");
+        report("POST /tasks", creates);
+        report("GET /tasks", lists);
+
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Returns the create and list latencies of one user, in nanoseconds.
+     */
+    private static long[][] runUser(HttpClient client, URI tasks, String userId, long deadline) throws Exception {
+        HttpRequest create = HttpRequest.newBuilder(tasks)
+                .header("Content-Type", "application/json")
+                .header("X-User-Id", userId)
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"title\":\"Load test task\",\"description\":\"Created by LocalLoadBenchmark\",\"deadline\":1900000000000}"))
+                .build();
+        HttpRequest list = HttpRequest.newBuilder(URI.create(tasks + "?limit=20"))
+                .header("X-User-Id", userId)
+                .GET()
+                .build();
+
+        long[] creates = new long[1024];
+        long[] lists = new long[1024];
+        int count = 0;
+        while (System.nanoTime() < deadline) {
+            if (count == creates.length) {
+                creates = Arrays.copyOf(creates, count * 2);
+                lists = Arrays.copyOf(lists, count * 2);
+            }
+            creates[count] = timed(client, create, 201);
+            lists[count] = timed(client, list, 200);
+            count++;
+        }
+        return new long[][] {Arrays.copyOf(creates, count), Arrays.copyOf(lists, count)};
+    }
+
+    private static long timed(HttpClient client, HttpRequest request, int expectedStatus) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        long elapsed = System.nanoTime() - start;
+        if (response.statusCode() != expectedStatus) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " returned " + response.statusCode());
+        }
+        return elapsed;
+    }
+
+    private static void report(String route, long[][] perUser) {
+        long[] all = Arrays.stream(perUser).flatMapToLong(Arrays::stream).sorted().toArray();
+        if (all.length == 0) {
+            System.out.printf("%-12s no requests completed%n", route);
+            return;
+        }
+        System.out.printf("%-12s %10.0f %10.2f %10.2f %10.2f %10.2f%n", route,
+                (double) all.length / SECONDS,
+                millis(all, 0.50), millis(all, 0.99), millis(all, 0.999), all[all.length - 1] / 1e6);
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(quantile * (sorted.length - 1)))] / 1e6;
+    }
+}
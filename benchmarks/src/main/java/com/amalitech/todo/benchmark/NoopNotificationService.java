@@ -0,0 +1,38 @@
+package com.amalitech.todo.benchmark;
+
+import com.amalitech.todo.model.Task;
+import com.amalitech.todo.service.NotificationService;
+
+import java.util.List;
+
+/**
+ * NotificationService stand-in that accepts every message without sending it.
+ */
+public class NoopNotificationService extends NotificationService {
+
+    public NoopNotificationService() {
+        super(() -> {
+            throw new IllegalStateException("No SNS client in benchmarks");
+        }, () -> {
+            throw new IllegalStateException("No SQS client in benchmarks");
+        });
+    }
+
+    @Override
+    public void sendTaskExpiryNotification(Task task) {
+    }
+
+    @Override
+    public List<Task> sendTaskExpiryDigests(List<Task> tasks) {
+        return List.of();
+    }
+
+    @Override
+    public void scheduleTaskForExpiryCheck(Task task) {
+    }
+
+    @Override
+    public List<Task> scheduleTasksForExpiryCheck(List<Task> tasks) {
+        return List.of();
+    }
+}
@@ -0,0 +1,62 @@
+package com.amalitech.todo.benchmark;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reports handler init time with eager client construction (the old behaviour) and with the
+ * lazy ServiceRegistry. Every sample runs in its own JVM so class loading is part of the cost.
+ */
+public class StartupBenchmark {
+
+    private static final List<String> HANDLERS = List.of(
+            "com.amalitech.todo.handler.TaskStreamHandler",
+            "com.amalitech.todo.handler.ExpiryHandler",
+            "com.amalitech.todo.handler.AuthHandler");
+
+    private static final int SAMPLES = Integer.getInteger("samples", 5);
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-50s %12s %12s%n", "handler", "eager (ms)", "lazy (ms)");
+        for (String handler : HANDLERS) {
+            double eager = median(handler, "eager");
+            double lazy = median(handler, "lazy");
+            System.out.printf("%-50s %12.1f %12.1f%n", handler, eager, lazy);
+        }
+    }
+
+    private static double median(String handler, String mode) throws Exception {
+        List<Double> samples = new ArrayList<>();
+        for (int i = 0; i < SAMPLES; i++) {
+            samples.add(runProbe(handler, mode));
+        }
+        Collections.sort(samples);
+        return samples.get(samples.size() / 2);
+    }
+
+    private static double runProbe(String handler, String mode) throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder builder = new ProcessBuilder(java,
+                "-Daws.region=eu-central-1",
+                "-cp", System.getProperty("java.class.path"),
+                StartupProbe.class.getName(), handler, mode);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+        Process process = builder.start();
+        String lastLine = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lastLine = line;
+            }
+        }
+        if (process.waitFor() != 0 || lastLine == null) {
+            throw new IllegalStateException("Probe failed for " + handler + " (" + mode + ")");
+        }
+        return Double.parseDouble(lastLine.trim());
+    }
+}
@@ -0,0 +1,25 @@
+package com.amalitech.todo.benchmark;
+
+import com.amalitech.todo.service.ServiceRegistry;
+
+/**
+ * Measures the init phase of one handler in a fresh JVM and prints the elapsed milliseconds.
+ * The "eager" mode primes every client inside the timed region, which is what each handler
+ * constructor did before clients were built lazily.
+ */
+public class StartupProbe {
+
+    public static void main(String[] args) throws Exception {
+        String handlerClass = args[0];
+        boolean eager = "eager".equals(args[1]);
+
+        long start = System.nanoTime();
+        Class.forName(handlerClass).getConstructor().newInstance();
+        if (eager) {
+            ServiceRegistry.prime();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(elapsed / 1_000_000.0);
+    }
+}
@@ -0,0 +1,149 @@
+package com.amalitech.todo.benchmark;
+
+import com.amalitech.todo.model.Task;
+import com.amalitech.todo.model.TaskTableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.TableMetadata;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the generated TaskTableSchema with TableSchema.fromBean(Task.class). It first checks
+ * that both schemas map the same tasks to the same items and back, then reports schema init time
+ * (each sample in a fresh JVM) and the per-item cost of itemToMap plus mapToItem.
+ */
+public class TableSchemaBenchmark {
+
+    private static final int SAMPLES = Integer.getInteger("samples", 5);
+    private static final int ITEMS = Integer.getInteger("items", 200_000);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && "init".equals(args[0])) {
+            initProbe(args[1]);
+            return;
+        }
+
+        TableSchema<Task> bean = TableSchema.fromBean(Task.class);
+        TableSchema<Task> generated = TaskTableSchema.INSTANCE;
+        checkRoundTrip(bean, generated);
+        System.out.println("Round trip: generated schema matches fromBean for " + sampleTasks().size() + " tasks");
+
+        System.out.printf("%-28s %12s %12s%n", "", "fromBean", "generated");
+        System.out.printf("%-28s %12.1f %12.1f%n", "schema init (ms)", medianInit("bean"), medianInit("generated"));
+        System.out.printf("%-28s %12.1f %12.1f%n", "map item round trip (ns)", perItem(bean), perItem(generated));
+    }
+
+    private static void checkRoundTrip(TableSchema<Task> bean, TableSchema<Task> generated) {
+        for (Task task : sampleTasks()) {
+            for (boolean ignoreNulls : new boolean[] {true, false}) {
+                Map<String, AttributeValue> expected = bean.itemToMap(task, ignoreNulls);
+                Map<String, AttributeValue> actual = generated.itemToMap(task, ignoreNulls);
+                if (!expected.equals(actual)) {
+                    throw new IllegalStateException("itemToMap differs: " + expected + " vs " + actual);
+                }
+            }
+
+            Map<String, AttributeValue> item = bean.itemToMap(task, true);
+            Map<String, AttributeValue> fromBean = bean.itemToMap(bean.mapToItem(item), false);
+            Map<String, AttributeValue> fromGenerated = bean.itemToMap(generated.mapToItem(item), false);
+            if (!fromBean.equals(fromGenerated)) {
+                throw new IllegalStateException("mapToItem differs: " + fromBean + " vs " + fromGenerated);
+            }
+        }
+
+        for (String index : List.of(TableMetadata.primaryIndexName(), "DeadlineBucketIndex", "UserStatusDeadlineIndex")) {
+            if (!bean.tableMetadata().indexPartitionKey(index).equals(generated.tableMetadata().indexPartitionKey(index))
+                    || !bean.tableMetadata().indexSortKey(index).equals(generated.tableMetadata().indexSortKey(index))) {
+                throw new IllegalStateException("Keys of " + index + " differ");
+            }
+        }
+    }
+
+    private static List<Task> sampleTasks() {
+        List<Task> tasks = new ArrayList<>();
+
+        Task open = task("user-1", "task-1", "Write report", "Quarterly numbers", 1_900_000_000_000L);
+        open.setDeadlineBucket(open.getDeadline() / 60_000);
+        tasks.add(open);
+
+        Task completed = task("user-1", "task-2", "Ship it", null, 1_700_000_000_000L);
+        completed.setCompleted(true);
+        tasks.add(completed);
+
+        tasks.add(task("user-2", "task-3", "Ünïcødé \"quoted\" title", "", 0L));
+        tasks.add(task("user-2", "task-4", "Long notes", "Agenda, owners and follow-ups. ".repeat(100), 0L));
+        tasks.add(new Task());
+        return tasks;
+    }
+
+    private static Task task(String userId, String taskId, String title, String description, long deadline) {
+        Task task = new Task();
+        task.setUserId(userId);
+        task.setTaskId(taskId);
+        task.setTitle(title);
+        task.setDescription(description);
+        task.setDeadline(deadline);
+        task.setCreatedAt(1_650_000_000_000L);
+        task.setVersion(3);
+        return task;
+    }
+
+    private static double perItem(TableSchema<Task> schema) {
+        Task task = sampleTasks().get(0);
+        long sink = 0;
+        for (int i = 0; i < ITEMS; i++) {
+            sink += schema.mapToItem(schema.itemToMap(task, true)).getVersion();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITEMS; i++) {
+            sink += schema.mapToItem(schema.itemToMap(task, true)).getVersion();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println();
+        }
+        return (double) elapsed / ITEMS;
+    }
+
+    private static void initProbe(String mode) {
+        long start = System.nanoTime();
+        TableSchema<Task> schema = "bean".equals(mode) ? TableSchema.fromBean(Task.class) : TaskTableSchema.INSTANCE;
+        schema.itemToMap(new Task(), true);
+        long elapsed = System.nanoTime() - start;
+        System.out.println(elapsed / 1_000_000.0);
+    }
+
+    private static double medianInit(String mode) throws Exception {
+        List<Double> samples = new ArrayList<>();
+        for (int i = 0; i < SAMPLES; i++) {
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            ProcessBuilder builder = new ProcessBuilder(java,
+                    "-cp", System.getProperty("java.class.path"),
+                    TableSchemaBenchmark.class.getName(), "init", mode);
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+            Process process = builder.start();
+            String lastLine = null;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lastLine = line;
+                }
+            }
+            if (process.waitFor() != 0 || lastLine == null) {
+                throw new IllegalStateException("Init probe failed (" + mode + ")");
+            }
+            samples.add(Double.parseDouble(lastLine.trim()));
+        }
+        Collections.sort(samples);
+        return samples.get(samples.size() / 2);
+    }
+}
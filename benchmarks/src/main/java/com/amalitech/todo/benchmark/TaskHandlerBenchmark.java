@@ -0,0 +1,130 @@
+package com.amalitech.todo.benchmark;
+
+import com.amalitech.todo.handler.TaskStreamHandler;
+import com.amalitech.todo.service.InMemoryTaskRepository;
+import com.amalitech.todo.service.InMemoryUserMetaService;
+import com.amalitech.todo.service.ServiceRegistry;
+import com.amazonaws.services.lambda.runtime.Context;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * createTask and getTasks end to end through TaskStreamHandler, from proxy event bytes to response
+ * envelope bytes, over the in-memory task repository and list versions. getTasks bumps the list
+ * version first so every call misses the ETag cache and pays for the query and serialization;
+ * getTasksNotModified is the 304 path.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskHandlerBenchmark {
+
+    private static final String CREATE_BODY =
+            "{\"title\":\"Prepare the quarterly report\",\"description\":\"Collect the figures\",\"deadline\":1900000000000}";
+
+    @Param({"10", "100"})
+    int tasksPerUser;
+
+    private final Context context = new BenchmarkContext();
+    private InMemoryTaskRepository taskRepository;
+    private InMemoryUserMetaService userMetaService;
+    private TaskStreamHandler streamHandler;
+
+    private byte[] createEvent;
+    private byte[] listEvent;
+    private byte[] conditionalListEvent;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        taskRepository = new InMemoryTaskRepository();
+        userMetaService = new InMemoryUserMetaService();
+        streamHandler = new TaskStreamHandler(BenchmarkFixtures.taskService(taskRepository, userMetaService));
+
+        createEvent = proxyEvent("POST", "/tasks", null, CREATE_BODY);
+        listEvent = proxyEvent("GET", "/tasks", null, null);
+    }
+
+    /**
+     * Reseeds the user's list every iteration so the create benchmarks neither grow the list that
+     * getTasks reads nor accumulate items across the run.
+     */
+    @Setup(Level.Iteration)
+    public void seed() throws IOException {
+        taskRepository.clear();
+        for (int i = 0; i < tasksPerUser; i++) {
+            taskRepository.saveTask(BenchmarkFixtures.task(BenchmarkFixtures.USER_ID, i));
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(4096);
+        streamHandler.handleRequest(new ByteArrayInputStream(listEvent), output, context);
+        String etag = ServiceRegistry.objectMapper().readTree(output.toByteArray()).path("headers").path("ETag").asText();
+        conditionalListEvent = proxyEvent("GET", "/tasks", etag, null);
+    }
+
+    @Benchmark
+    public byte[] createTask() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(512);
+        streamHandler.handleRequest(new ByteArrayInputStream(createEvent), output, context);
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] getTasks() throws IOException {
+        userMetaService.bumpListVersion(BenchmarkFixtures.USER_ID);
+        ByteArrayOutputStream output = new ByteArrayOutputStream(4096);
+        streamHandler.handleRequest(new ByteArrayInputStream(listEvent), output, context);
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] getTasksNotModified() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(512);
+        streamHandler.handleRequest(new ByteArrayInputStream(conditionalListEvent), output, context);
+        return output.toByteArray();
+    }
+
+    /**
+     * A proxy event shaped like the ones API Gateway sends, including the fields the stream handler
+     * skips, so the benchmark pays for skipping them too.
+     */
+    private static byte[] proxyEvent(String httpMethod, String resource, String ifNoneMatch, String body) {
+        String event = "{\"resource\":\"" + resource + "\",\"path\":\"" + resource + "\",\"httpMethod\":\"" + httpMethod + "\","
+                + "\"headers\":{\"Accept\":\"application/json\",\"Authorization\":\"eyJraWQiOiJ0ZXN0In0.eyJzdWIiOiJ0ZXN0In0.c2ln\","
+                + "\"Content-Type\":\"application/json\","
+                + (ifNoneMatch != null ? "\"If-None-Match\":\"" + ifNoneMatch.replace("\"", "\\\"") + "\"," : "")
+                + "\"Host\":\"abc123.execute-api.eu-central-1.amazonaws.com\","
+                + "\"User-Agent\":\"Mozilla/5.0\",\"X-Forwarded-For\":\"203.0.113.10\",\"X-Forwarded-Port\":\"443\","
+                + "\"X-Forwarded-Proto\":\"https\"},"
+                + "\"multiValueHeaders\":{\"Accept\":[\"application/json\"],\"Content-Type\":[\"application/json\"]},"
+                + "\"queryStringParameters\":null,\"multiValueQueryStringParameters\":null,\"pathParameters\":null,"
+                + "\"stageVariables\":null,"
+                + "\"requestContext\":{\"resourceId\":\"abc123\",\"resourcePath\":\"" + resource + "\","
+                + "\"httpMethod\":\"" + httpMethod + "\",\"requestId\":\"c6af9ac6-7b61-11e6-9a41-93e8deadbeef\","
+                + "\"accountId\":\"000000000000\",\"stage\":\"Prod\","
+                + "\"identity\":{\"sourceIp\":\"203.0.113.10\",\"userAgent\":\"Mozilla/5.0\"},"
+                + "\"authorizer\":{\"claims\":{\"sub\":\"" + BenchmarkFixtures.USER_ID + "\",\"email\":\"user@example.com\","
+                + "\"email_verified\":\"true\",\"token_use\":\"id\"}}},"
+                + "\"body\":" + (body != null ? "\"" + body.replace("\"", "\\\"") + "\"" : "null") + ","
+                + "\"isBase64Encoded\":false}";
+        return event.getBytes(StandardCharsets.UTF_8);
+    }
+}
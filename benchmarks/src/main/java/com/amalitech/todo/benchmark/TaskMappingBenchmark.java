@@ -0,0 +1,56 @@
+package com.amalitech.todo.benchmark;
+
+import com.amalitech.todo.model.Task;
+import com.amalitech.todo.model.TaskTableSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enhanced client item mapping of a Task, with the reflective bean schema and the generated one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskMappingBenchmark {
+
+    @Param({"bean", "generated"})
+    String schemaType;
+
+    private TableSchema<Task> schema;
+    private Task task;
+    private Map<String, AttributeValue> item;
+
+    @Setup
+    public void setUp() {
+        schema = "bean".equals(schemaType) ? TableSchema.fromBean(Task.class) : TaskTableSchema.INSTANCE;
+        task = BenchmarkFixtures.task(BenchmarkFixtures.USER_ID, 1);
+        item = schema.itemToMap(task, true);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> itemToMap() {
+        return schema.itemToMap(task, true);
+    }
+
+    @Benchmark
+    public Task mapToItem() {
+        return schema.mapToItem(item);
+    }
+}
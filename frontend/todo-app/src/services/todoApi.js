@@ -54,7 +54,15 @@ class TodoApi {
   }
 
   async getTasks() {
-    return this.makeRequest('get', '/tasks');
+    const tasks = [];
+    let cursor = null;
+    do {
+      const query = cursor ? `?cursor=${encodeURIComponent(cursor)}` : '';
+      const page = await this.makeRequest('get', `/tasks${query}`);
+      tasks.push(...((page && page.items) || []));
+      cursor = page && page.nextCursor;
+    } while (cursor);
+    return tasks;
   }
 
   async createTask(taskData) {
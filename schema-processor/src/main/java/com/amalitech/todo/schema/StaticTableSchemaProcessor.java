@@ -0,0 +1,260 @@
+package com.amalitech.todo.schema;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a {@code <Bean>TableSchema} class next to every {@code @DynamoDbBean}. The generated
+ * class holds a {@code StaticTableSchema} built from plain method references, so the enhanced client
+ * gets the same mapping as {@code TableSchema.fromBean} without bean introspection or
+ * LambdaMetafactory accessors at runtime.
+ *
+ * <p>Attributes follow the bean rules that {@code fromBean} uses: a public getter with a matching
+ * public setter, named after the decapitalized property unless {@code @DynamoDbAttribute} renames it,
+ * and skipped when annotated with {@code @DynamoDbIgnore}. Key and index annotations become the
+ * equivalent static attribute tags, and {@code @DynamoDbConvertedBy} an instance of its converter. Only attributes of non-generic types are supported; anything
+ * else is reported as a compile error so the two schemas can never silently diverge.
+ */
+@SupportedAnnotationTypes(StaticTableSchemaProcessor.DYNAMO_DB_BEAN)
+public class StaticTableSchemaProcessor extends AbstractProcessor {
+
+    static final String DYNAMO_DB_BEAN = "software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean";
+
+    private static final String ANNOTATIONS = "software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.";
+    private static final String PARTITION_KEY = ANNOTATIONS + "DynamoDbPartitionKey";
+    private static final String SORT_KEY = ANNOTATIONS + "DynamoDbSortKey";
+    private static final String SECONDARY_PARTITION_KEY = ANNOTATIONS + "DynamoDbSecondaryPartitionKey";
+    private static final String SECONDARY_SORT_KEY = ANNOTATIONS + "DynamoDbSecondarySortKey";
+    private static final String ATTRIBUTE = ANNOTATIONS + "DynamoDbAttribute";
+    private static final String IGNORE = ANNOTATIONS + "DynamoDbIgnore";
+    private static final String CONVERTED_BY = ANNOTATIONS + "DynamoDbConvertedBy";
+
+    private record Attribute(String name, String type, String getter, String setter, List<String> tags, String converter) {}
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS) {
+                    generate((TypeElement) element);
+                }
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement bean) {
+        List<Attribute> attributes = new ArrayList<>();
+        for (ExecutableElement getter : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(bean))) {
+            String property = propertyOf(getter);
+            if (property == null || annotation(getter, IGNORE) != null) {
+                continue;
+            }
+            ExecutableElement setter = setterFor(bean, property, getter.getReturnType());
+            if (setter == null) {
+                continue;
+            }
+            String type = attributeType(getter.getReturnType());
+            if (type == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Unsupported attribute type for a generated table schema: " + getter.getReturnType(), getter);
+                return;
+            }
+            attributes.add(new Attribute(attributeName(getter, property), type,
+                    getter.getSimpleName().toString(), setter.getSimpleName().toString(), tagsOf(getter),
+                    converterOf(getter)));
+        }
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(bean).getQualifiedName().toString();
+        String beanName = bean.getSimpleName().toString();
+        String schemaName = beanName + "TableSchema";
+        try (Writer out = processingEnv.getFiler()
+                .createSourceFile(packageName + "." + schemaName, bean)
+                .openWriter()) {
+            out.write(render(packageName, beanName, schemaName, attributes));
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Could not write " + schemaName + ": " + e.getMessage(), bean);
+        }
+    }
+
+    private String render(String packageName, String beanName, String schemaName, List<Attribute> attributes) {
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(packageName).append(";\n\n")
+                .append("import software.amazon.awssdk.enhanced.dynamodb.TableSchema;\n")
+                .append("import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags;\n")
+                .append("import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema;\n\n")
+                .append("import javax.annotation.processing.Generated;\n")
+                .append("import java.util.List;\n\n")
+                .append("/**\n * Static table schema for {@link ").append(beanName)
+                .append("}, equivalent to {@code TableSchema.fromBean(").append(beanName).append(".class)}.\n */\n")
+                .append("@Generated(\"").append(getClass().getName()).append("\")\n")
+                .append("public final class ").append(schemaName).append(" {\n\n")
+                .append("    public static final TableSchema<").append(beanName).append("> INSTANCE = StaticTableSchema.builder(")
+                .append(beanName).append(".class)\n")
+                .append("            .newItemSupplier(").append(beanName).append("::new)\n");
+        for (Attribute attribute : attributes) {
+            source.append("            .addAttribute(").append(attribute.type()).append(".class, a -> a.name(\"")
+                    .append(attribute.name()).append("\")\n")
+                    .append("                    .getter(").append(beanName).append("::").append(attribute.getter()).append(")\n")
+                    .append("                    .setter(").append(beanName).append("::").append(attribute.setter()).append(")");
+            if (!attribute.tags().isEmpty()) {
+                source.append("\n                    .tags(").append(String.join(", ", attribute.tags())).append(")");
+            }
+            if (attribute.converter() != null) {
+                source.append("\n                    .attributeConverter(new ").append(attribute.converter()).append("())");
+            }
+            source.append(")\n");
+        }
+        source.append("            .build();\n\n")
+                .append("    private ").append(schemaName).append("() {\n    }\n}\n");
+        return source.toString();
+    }
+
+    private String propertyOf(ExecutableElement method) {
+        if (!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers().contains(Modifier.STATIC)
+                || !method.getParameters().isEmpty()
+                || method.getEnclosingElement().toString().equals("java.lang.Object")) {
+            return null;
+        }
+        String name = method.getSimpleName().toString();
+        if (name.startsWith("get") && name.length() > 3 && method.getReturnType().getKind() != TypeKind.VOID) {
+            return decapitalize(name.substring(3));
+        }
+        if (name.startsWith("is") && name.length() > 2 && method.getReturnType().getKind() == TypeKind.BOOLEAN) {
+            return decapitalize(name.substring(2));
+        }
+        return null;
+    }
+
+    private ExecutableElement setterFor(TypeElement bean, String property, TypeMirror type) {
+        String name = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(bean))) {
+            if (method.getSimpleName().contentEquals(name)
+                    && method.getModifiers().contains(Modifier.PUBLIC)
+                    && !method.getModifiers().contains(Modifier.STATIC)
+                    && method.getParameters().size() == 1
+                    && processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), type)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private String attributeType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type)
+                    .getQualifiedName().toString();
+        }
+        if (type.getKind() == TypeKind.DECLARED && ((DeclaredType) type).getTypeArguments().isEmpty()) {
+            return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        }
+        return null;
+    }
+
+    private String attributeName(ExecutableElement getter, String property) {
+        AnnotationMirror rename = annotation(getter, ATTRIBUTE);
+        Object value = rename != null ? value(rename, "value") : null;
+        return value != null ? value.toString() : property;
+    }
+
+    /**
+     * The converter class named by {@code @DynamoDbConvertedBy}, which fromBean instantiates
+     * through its public no-argument constructor; null when the attribute uses the default one.
+     */
+    private String converterOf(ExecutableElement getter) {
+        AnnotationMirror convertedBy = annotation(getter, CONVERTED_BY);
+        Object value = convertedBy != null ? value(convertedBy, "value") : null;
+        if (value instanceof DeclaredType converter) {
+            return ((TypeElement) converter.asElement()).getQualifiedName().toString();
+        }
+        return null;
+    }
+
+    private List<String> tagsOf(ExecutableElement getter) {
+        List<String> tags = new ArrayList<>();
+        if (annotation(getter, PARTITION_KEY) != null) {
+            tags.add("StaticAttributeTags.primaryPartitionKey()");
+        }
+        if (annotation(getter, SORT_KEY) != null) {
+            tags.add("StaticAttributeTags.primarySortKey()");
+        }
+        AnnotationMirror secondaryPartitionKey = annotation(getter, SECONDARY_PARTITION_KEY);
+        if (secondaryPartitionKey != null) {
+            tags.add("StaticAttributeTags.secondaryPartitionKey(" + indexNames(secondaryPartitionKey) + ")");
+        }
+        AnnotationMirror secondarySortKey = annotation(getter, SECONDARY_SORT_KEY);
+        if (secondarySortKey != null) {
+            tags.add("StaticAttributeTags.secondarySortKey(" + indexNames(secondarySortKey) + ")");
+        }
+        return tags;
+    }
+
+    private String indexNames(AnnotationMirror annotation) {
+        Object value = value(annotation, "indexNames");
+        List<String> names = new ArrayList<>();
+        if (value instanceof List<?> values) {
+            for (Object name : values) {
+                names.add(((AnnotationValue) name).getValue().toString());
+            }
+        }
+        StringBuilder list = new StringBuilder("List.of(");
+        for (int i = 0; i < names.size(); i++) {
+            list.append(i > 0 ? ", " : "").append('"').append(names.get(i)).append('"');
+        }
+        return list.append(')').toString();
+    }
+
+    private AnnotationMirror annotation(Element element, String annotationType) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationType)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private Object value(AnnotationMirror annotation, String name) {
+        for (var entry : annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Same rule as {@code java.beans.Introspector.decapitalize}: "URL" stays "URL", "Title" becomes "title".
+     */
+    private static String decapitalize(String name) {
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(0)) && Character.isUpperCase(name.charAt(1))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+}
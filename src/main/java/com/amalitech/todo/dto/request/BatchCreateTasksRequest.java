@@ -0,0 +1,10 @@
+package com.amalitech.todo.dto.request;
+
+import java.util.List;
+
+/**
+ * Represents the JSON payload for a bulk create tasks API request.
+ */
+public record BatchCreateTasksRequest(
+        List<CreateTaskRequest> tasks
+) {}
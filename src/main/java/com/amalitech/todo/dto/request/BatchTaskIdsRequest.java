@@ -0,0 +1,10 @@
+package com.amalitech.todo.dto.request;
+
+import java.util.List;
+
+/**
+ * Represents the JSON payload for bulk get and bulk delete API requests.
+ */
+public record BatchTaskIdsRequest(
+        List<String> taskIds
+) {}
@@ -0,0 +1,85 @@
+package com.amalitech.todo.dto.request;
+
+import com.amalitech.todo.model.Task;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Represents the query parameters for a list tasks API request.
+ * A null cursor requests the first page; summaryOnly skips the description attribute.
+ * A non-null status ("open" or "completed") lists only tasks in that state, ordered by deadline.
+ * dueAfter (inclusive) and dueBefore (exclusive) bound the deadline, in epoch milliseconds.
+ */
+public record ListTasksRequest(
+        int limit,
+        String cursor,
+        boolean summaryOnly,
+        String status,
+        Long dueAfter,
+        Long dueBefore
+) {
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    public ListTasksRequest {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (status != null && !Task.STATUS_OPEN.equals(status) && !Task.STATUS_COMPLETED.equals(status)) {
+            throw new IllegalArgumentException("status must be " + Task.STATUS_OPEN + " or " + Task.STATUS_COMPLETED);
+        }
+        if (dueAfter != null && dueBefore != null && dueAfter >= dueBefore) {
+            throw new IllegalArgumentException("dueAfter must be before dueBefore");
+        }
+    }
+
+    public ListTasksRequest(int limit, String cursor, boolean summaryOnly) {
+        this(limit, cursor, summaryOnly, null, null, null);
+    }
+
+    public static ListTasksRequest firstPage() {
+        return new ListTasksRequest(DEFAULT_LIMIT, null, false);
+    }
+
+    /**
+     * Parses the query string of GET /tasks. sort=deadline is accepted together with a status,
+     * whose results are always in deadline order; the unfiltered list is ordered by taskId only.
+     */
+    public static ListTasksRequest fromQuery(Map<String, String> query) {
+        if (query == null || query.isEmpty()) {
+            return firstPage();
+        }
+
+        String sort = query.get("sort");
+        if (sort != null && !("deadline".equals(sort) && query.get("status") != null)) {
+            throw new IllegalArgumentException("sort=deadline requires status=" + Task.STATUS_OPEN
+                    + " or status=" + Task.STATUS_COMPLETED);
+        }
+
+        Integer limit = number(query, "limit", Integer::parseInt);
+        return new ListTasksRequest(
+                limit != null ? limit : DEFAULT_LIMIT,
+                query.get("cursor"),
+                "summary".equals(query.get("view")),
+                query.get("status"),
+                number(query, "dueAfter", Long::parseLong),
+                number(query, "dueBefore", Long::parseLong));
+    }
+
+    private static <T> T number(Map<String, String> query, String name, Function<String, T> parser) {
+        String value = query.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number", e);
+        }
+    }
+
+    public boolean hasDeadlineRange() {
+        return dueAfter != null || dueBefore != null;
+    }
+}
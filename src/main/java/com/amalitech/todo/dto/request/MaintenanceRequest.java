@@ -0,0 +1,38 @@
+package com.amalitech.todo.dto.request;
+
+import com.amalitech.todo.service.ScanCheckpoint;
+
+/**
+ * Represents the payload of a maintenance run: the action ("migrate", "reschedule", "verify" or
+ * "reconcile"), how many scan segments to run in parallel, and the read capacity units per second
+ * the scan may consume. A checkpoint from an earlier run resumes that run, with the segment count
+ * it started with.
+ */
+public record MaintenanceRequest(
+        String action,
+        Integer segments,
+        Double readCapacityPerSecond,
+        ScanCheckpoint checkpoint
+) {
+    public static final int DEFAULT_SEGMENTS = 8;
+    public static final double DEFAULT_READ_CAPACITY_PER_SECOND = 100;
+
+    public MaintenanceRequest {
+        if (action == null) {
+            throw new IllegalArgumentException("action is required");
+        }
+        if (checkpoint != null && segments != null && segments != checkpoint.totalSegments()) {
+            throw new IllegalArgumentException("The checkpoint was taken with " + checkpoint.totalSegments() + " segments");
+        }
+        if (readCapacityPerSecond != null && !(readCapacityPerSecond > 0)) {
+            throw new IllegalArgumentException("readCapacityPerSecond must be positive");
+        }
+        if (checkpoint == null) {
+            checkpoint = ScanCheckpoint.start(segments != null ? segments : DEFAULT_SEGMENTS);
+        }
+        segments = checkpoint.totalSegments();
+        if (readCapacityPerSecond == null) {
+            readCapacityPerSecond = DEFAULT_READ_CAPACITY_PER_SECOND;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.amalitech.todo.dto.request;
+
+/**
+ * Represents the SQS message that asks for a user's email to be subscribed to notifications.
+ */
+public record SubscriptionRequest(
+        String userId,
+        String email
+) {}
@@ -0,0 +1,39 @@
+package com.amalitech.todo.dto.request;
+
+import java.util.Map;
+
+/**
+ * Represents the query parameters for a task summary API request. utcOffsetMinutes is the
+ * client's offset from UTC, which decides where its day starts; it must be a whole number of
+ * quarter hours, as every offset in use is, and defaults to 0.
+ */
+public record TaskSummaryRequest(int utcOffsetMinutes) {
+
+    public static final int MIN_UTC_OFFSET_MINUTES = -12 * 60;
+    public static final int MAX_UTC_OFFSET_MINUTES = 14 * 60;
+
+    public TaskSummaryRequest {
+        if (utcOffsetMinutes < MIN_UTC_OFFSET_MINUTES || utcOffsetMinutes > MAX_UTC_OFFSET_MINUTES) {
+            throw new IllegalArgumentException("utcOffsetMinutes must be between " + MIN_UTC_OFFSET_MINUTES
+                    + " and " + MAX_UTC_OFFSET_MINUTES);
+        }
+        if (utcOffsetMinutes % 15 != 0) {
+            throw new IllegalArgumentException("utcOffsetMinutes must be a multiple of 15");
+        }
+    }
+
+    /**
+     * Parses the query string of GET /tasks/summary.
+     */
+    public static TaskSummaryRequest fromQuery(Map<String, String> query) {
+        String offset = query != null ? query.get("utcOffsetMinutes") : null;
+        if (offset == null) {
+            return new TaskSummaryRequest(0);
+        }
+        try {
+            return new TaskSummaryRequest(Integer.parseInt(offset));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("utcOffsetMinutes must be a number", e);
+        }
+    }
+}
@@ -2,10 +2,13 @@ package com.amalitech.todo.dto.request;
 
 /**
  * Represents the JSON payload for an update task API request.
+ * Null fields are left unchanged. When version is set, the update only applies if the stored
+ * task is still at that version.
  */
 public record UpdateTaskRequest(
         String title,
         String description,
         Boolean completed,
-        Long deadline
+        Long deadline,
+        Long version
 ) {}
@@ -0,0 +1,10 @@
+package com.amalitech.todo.dto.response;
+
+import java.util.List;
+
+/**
+ * Represents the JSON payload for a bulk API response, one result per requested task.
+ */
+public record BatchTaskResponse(
+        List<BatchTaskResult> results
+) {}
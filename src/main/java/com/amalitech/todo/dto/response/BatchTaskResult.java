@@ -0,0 +1,27 @@
+package com.amalitech.todo.dto.response;
+
+import com.amalitech.todo.model.Task;
+
+/**
+ * Represents the outcome for one task of a bulk API request.
+ * task is only set for created and found results.
+ */
+public record BatchTaskResult(
+        String taskId,
+        String status,
+        Task task
+) {
+    public static final String CREATED = "created";
+    public static final String DELETED = "deleted";
+    public static final String FOUND = "found";
+    public static final String NOT_FOUND = "not_found";
+    public static final String FAILED = "failed";
+
+    public static BatchTaskResult of(Task task, String status) {
+        return new BatchTaskResult(task.getTaskId(), status, task);
+    }
+
+    public static BatchTaskResult of(String taskId, String status) {
+        return new BatchTaskResult(taskId, status, null);
+    }
+}
@@ -0,0 +1,23 @@
+package com.amalitech.todo.dto.response;
+
+import com.amalitech.todo.service.ScanCheckpoint;
+import com.amalitech.todo.service.SegmentedScan;
+
+/**
+ * Represents the outcome of a maintenance run. Until complete is true, invoking again with the
+ * same action and this checkpoint carries on where the run stopped.
+ */
+public record MaintenanceResponse(
+        String action,
+        long scanned,
+        long affected,
+        double consumedCapacity,
+        int failedSegments,
+        boolean complete,
+        ScanCheckpoint checkpoint
+) {
+    public static MaintenanceResponse of(String action, SegmentedScan.Result result) {
+        return new MaintenanceResponse(action, result.scanned(), result.affected(), result.consumedCapacity(),
+                result.failedSegments(), result.checkpoint().isComplete(), result.checkpoint());
+    }
+}
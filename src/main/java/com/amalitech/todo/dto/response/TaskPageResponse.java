@@ -0,0 +1,14 @@
+package com.amalitech.todo.dto.response;
+
+import com.amalitech.todo.model.Task;
+
+import java.util.List;
+
+/**
+ * Represents the JSON payload for a list tasks API response.
+ * nextCursor is null when there are no more pages.
+ */
+public record TaskPageResponse(
+        List<Task> items,
+        String nextCursor
+) {}
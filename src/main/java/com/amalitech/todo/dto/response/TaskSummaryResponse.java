@@ -0,0 +1,27 @@
+package com.amalitech.todo.dto.response;
+
+import com.amalitech.todo.service.TaskSummary;
+
+/**
+ * Represents the JSON payload for a task summary API response. overdue counts open tasks due
+ * before the start of the client's day and dueToday those due during it, so the two never
+ * overlap; open and completed count all of the user's tasks.
+ */
+public record TaskSummaryResponse(
+        long open,
+        long completed,
+        long overdue,
+        long dueToday
+) {
+    private static final long DAY_MILLIS = 24 * 60 * 60_000L;
+
+    public static TaskSummaryResponse of(TaskSummary summary, long now, int utcOffsetMinutes) {
+        long offsetMillis = utcOffsetMinutes * 60_000L;
+        long startOfToday = Math.floorDiv(now + offsetMillis, DAY_MILLIS) * DAY_MILLIS - offsetMillis;
+        return new TaskSummaryResponse(
+                summary.open(),
+                summary.completed(),
+                summary.openDueBefore(startOfToday),
+                summary.openDueBetween(startOfToday, startOfToday + DAY_MILLIS));
+    }
+}
@@ -0,0 +1,13 @@
+package com.amalitech.todo.exception;
+
+/**
+ * Thrown when a write carries an expected version that no longer matches the stored task.
+ */
+public class TaskVersionConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TaskVersionConflictException(String taskId, long expectedVersion) {
+        super("Task " + taskId + " is no longer at version " + expectedVersion);
+    }
+}
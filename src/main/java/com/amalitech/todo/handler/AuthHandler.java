@@ -1,31 +1,48 @@
 package com.amalitech.todo.handler;
 
-import com.amalitech.todo.service.NotificationService;
+import com.amalitech.todo.metrics.InvocationMetrics;
+import com.amalitech.todo.service.ServiceRegistry;
+import com.amalitech.todo.service.SubscriptionService;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.CognitoUserPoolPostAuthenticationEvent;
 
+import java.util.Map;
+
 
 public class AuthHandler implements RequestHandler<CognitoUserPoolPostAuthenticationEvent, CognitoUserPoolPostAuthenticationEvent> {
 
-    private final NotificationService notificationService;
+    private final SubscriptionService subscriptionService;
 
     public AuthHandler() {
-        this.notificationService = new NotificationService();
+        this.subscriptionService = ServiceRegistry.subscriptionService();
     }
 
+    /**
+     * Runs on every sign-in, so it only checks the subscription registry and queues a subscription
+     * for new or changed emails. A failure here is logged rather than thrown, since throwing would
+     * fail the sign-in itself.
+     */
     @Override
     public CognitoUserPoolPostAuthenticationEvent handleRequest(CognitoUserPoolPostAuthenticationEvent event, Context context) {
-        String email = event.getRequest().getUserAttributes().get("email");
-
-        if (email != null && !email.isEmpty()) {
-            context.getLogger().log("Subscribing user to SNS topic: " + email);
-            notificationService.subscribeUserToNotifications(email);
-        } else {
-            context.getLogger().log("User does not have an email attribute, skipping subscription.");
+        try (InvocationMetrics metrics = InvocationMetrics.start("postAuthentication", context)) {
+            Map<String, String> userAttributes = event.getRequest().getUserAttributes();
+            String email = userAttributes.get("email");
+
+            if (email != null && !email.isEmpty()) {
+                try {
+                    if (subscriptionService.ensureSubscribed(userAttributes.get("sub"), email)) {
+                        context.getLogger().log("Queued SNS subscription for: " + email);
+                        metrics.count("SubscriptionsQueued", 1);
+                    }
+                } catch (Exception e) {
+                    context.getLogger().log("Error checking SNS subscription for " + email + ": " + e.getMessage());
+                }
+            } else {
+                context.getLogger().log("User does not have an email attribute, skipping subscription.");
+            }
+
+            return event;
         }
-
-        return event;
     }
 }
-
@@ -0,0 +1,19 @@
+package com.amalitech.todo.handler;
+
+import java.util.Map;
+
+/**
+ * The CORS headers sent with every API response. They never change, so they are built once per
+ * container rather than once per response.
+ */
+final class CorsHeaders {
+
+    static final Map<String, String> HEADERS = Map.of(
+            "Access-Control-Allow-Origin", "https://todoapp.d36509gvuetnkq.amplifyapp.com",
+            "Access-Control-Allow-Headers", "Content-Type,X-Amz-Date,Authorization,X-Api-Key,X-Amz-Security-Token,If-None-Match",
+            "Access-Control-Allow-Methods", "OPTIONS,POST,GET,PUT,DELETE",
+            "Access-Control-Expose-Headers", "ETag");
+
+    private CorsHeaders() {
+    }
+}
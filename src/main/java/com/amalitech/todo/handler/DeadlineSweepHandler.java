@@ -0,0 +1,39 @@
+package com.amalitech.todo.handler;
+
+import com.amalitech.todo.metrics.InvocationMetrics;
+import com.amalitech.todo.service.ServiceRegistry;
+import com.amalitech.todo.service.TaskService;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.ScheduledEvent;
+
+public class DeadlineSweepHandler implements RequestHandler<ScheduledEvent, Void> {
+
+    private static final int DEFAULT_LOOKBACK_MINUTES = 15;
+
+    private final TaskService taskService;
+    private final int lookbackMinutes;
+
+    public DeadlineSweepHandler() {
+        this.taskService = ServiceRegistry.taskService();
+        String lookback = System.getenv("SWEEP_LOOKBACK_MINUTES");
+        this.lookbackMinutes = lookback != null ? Integer.parseInt(lookback) : DEFAULT_LOOKBACK_MINUTES;
+    }
+
+    /**
+     * This function is triggered on a schedule.
+     * It notifies for every open task whose deadline bucket is due.
+     */
+    @Override
+    public Void handleRequest(ScheduledEvent event, Context context) {
+        try (InvocationMetrics metrics = InvocationMetrics.start("sweepDueTasks", context)) {
+            TaskService.SweepResult result = taskService.sweepDueTasks(System.currentTimeMillis(), lookbackMinutes);
+            context.getLogger().log("Deadline sweep notified " + result.notified() + " tasks, "
+                    + result.failed() + " left for retry, " + result.failedBuckets() + " buckets failed");
+            metrics.count("Notified", result.notified());
+            metrics.count("Failed", result.failed());
+            metrics.count("FailedBuckets", result.failedBuckets());
+            return null;
+        }
+    }
+}
@@ -1,73 +1,157 @@
 package com.amalitech.todo.handler;
 
+import com.amalitech.todo.metrics.InvocationMetrics;
 import com.amalitech.todo.model.Task;
+import com.amalitech.todo.service.ServiceRegistry;
 import com.amalitech.todo.service.TaskService;
+import com.amalitech.todo.service.TaskSummary;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
 import com.amazonaws.services.lambda.runtime.events.SQSEvent;
-import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
 import com.amazonaws.services.lambda.runtime.events.models.dynamodb.StreamRecord;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class ExpiryHandler {
 
     private final TaskService taskService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = ServiceRegistry.objectMapper();
 
     public ExpiryHandler() {
-        this.taskService = new TaskService();
+        this(ServiceRegistry.taskService());
+    }
+
+    public ExpiryHandler(TaskService taskService) {
+        this.taskService = taskService;
     }
 
     /**
      * This function is triggered by the DynamoDB stream.
-     * Its job is to send a message to SQS for any new or updated task with a deadline.
+     * It diffs the old and new image of each record and only acts when the deadline or the completion
+     * state changed: past-due tasks are queued for an expiry check in SendMessageBatch calls and
+     * completed tasks are taken out of the deadline sweep. Every record that changes what a user's
+     * TaskSummary counts contributes its delta; the deltas are applied per user once the batch is
+     * read. Failures are reported from the first failed record so the stream retries from there;
+     * summary changes that were applied already are skipped on the retry by their eventID.
      */
-    public void processStream(DynamodbEvent event, Context context) {
-        for (DynamodbEvent.DynamodbStreamRecord record : event.getRecords()) {
-            if (record.getEventName().equals("INSERT") || record.getEventName().equals("MODIFY")) {
-                StreamRecord streamRecord = record.getDynamodb();
-                Map<String, AttributeValue> newImage = streamRecord.getNewImage();
-
-                Task task = new Task();
-                task.setUserId(newImage.get("userId").getS());
-                task.setTaskId(newImage.get("taskId").getS());
-                task.setTitle(newImage.get("title").getS());
-                task.setDescription(newImage.get("description").getS());
-                task.setCompleted(newImage.get("completed").getBOOL());
-                task.setDeadline(Long.parseLong(newImage.get("deadline").getN()));
-
-                context.getLogger().log("Processing stream record for task ID: " + task.getTaskId());
-                taskService.scheduleExpiryCheck(task);
+    public StreamsEventResponse processStream(DynamodbEvent event, Context context) {
+        try (InvocationMetrics metrics = InvocationMetrics.start("processStream", context)) {
+            List<DynamodbEvent.DynamodbStreamRecord> records = event.getRecords();
+            Map<Task, Integer> recordIndexes = new IdentityHashMap<>();
+            List<Task> changedTasks = new ArrayList<>();
+            Map<String, List<TaskSummary.Change>> summaryChanges = new LinkedHashMap<>();
+            Map<String, Integer> firstSummaryRecords = new HashMap<>();
+            int firstFailure = records.size();
+            metrics.count("Records", records.size());
+
+            for (int i = 0; i < records.size(); i++) {
+                StreamRecord streamRecord = records.get(i).getDynamodb();
+                Task oldTask = TaskStreamImages.toTask(streamRecord.getOldImage());
+                Task newTask = TaskStreamImages.toTask(streamRecord.getNewImage());
+
+                Map<String, Long> delta = TaskSummary.delta(oldTask, newTask);
+                if (!delta.isEmpty()) {
+                    String userId = (newTask != null ? newTask : oldTask).getUserId();
+                    summaryChanges.computeIfAbsent(userId, id -> new ArrayList<>())
+                            .add(new TaskSummary.Change(records.get(i).getEventID(), delta));
+                    firstSummaryRecords.putIfAbsent(userId, i);
+                }
+
+                if (!expiryStateChanged(oldTask, newTask)) {
+                    continue;
+                }
+
+                context.getLogger().log("Processing stream record for task ID: " + newTask.getTaskId());
+                try {
+                    if (newTask.isCompleted()) {
+                        taskService.cancelExpiryCheck(newTask);
+                    } else {
+                        recordIndexes.put(newTask, i);
+                        changedTasks.add(newTask);
+                    }
+                } catch (Exception e) {
+                    context.getLogger().log("Error cancelling expiry check for task ID: " + newTask.getTaskId());
+                    firstFailure = Math.min(firstFailure, i);
+                }
+            }
+
+            metrics.count("ChangedTasks", changedTasks.size());
+            for (Task task : taskService.scheduleExpiryChecks(changedTasks)) {
+                context.getLogger().log("Error scheduling expiry check for task ID: " + task.getTaskId());
+                firstFailure = Math.min(firstFailure, recordIndexes.get(task));
+            }
+
+            metrics.count("SummaryUsers", summaryChanges.size());
+            for (String userId : taskService.applyTaskSummaryChanges(summaryChanges)) {
+                context.getLogger().log("Error updating the task summary of user " + userId);
+                firstFailure = Math.min(firstFailure, firstSummaryRecords.get(userId));
             }
+
+            if (firstFailure == records.size()) {
+                return new StreamsEventResponse(List.of());
+            }
+            String sequenceNumber = records.get(firstFailure).getDynamodb().getSequenceNumber();
+            return new StreamsEventResponse(List.of(new StreamsEventResponse.BatchItemFailure(sequenceNumber)));
+        }
+    }
+
+    /**
+     * Deletes never need work: removing the item also removes it from the deadline index.
+     */
+    private boolean expiryStateChanged(Task oldTask, Task newTask) {
+        if (newTask == null) {
+            return false;
+        }
+        if (oldTask == null) {
+            return newTask.getDeadline() > 0;
         }
+        return oldTask.getDeadline() != newTask.getDeadline() || oldTask.isCompleted() != newTask.isCompleted();
     }
 
     /**
      * This function is triggered by SQS.
-     * It processes a task from the queue and sends a notification if it's near expiry.
+     * It processes a batch of tasks from the queue and sends a notification for each one that has expired.
+     * Only the messages that failed are reported back, so the rest of the batch is not redelivered.
      */
-    public void handleExpiry(SQSEvent event, Context context) {
-        for (SQSEvent.SQSMessage msg : event.getRecords()) {
-            try {
-                Task task = objectMapper.readValue(msg.getBody(), Task.class);
-                context.getLogger().log("Handling expiry for task ID: " + task.getTaskId());
-
-                long now = Instant.now().getEpochSecond();
-
-                if (task.getDeadline() > 0 && task.getDeadline() < now) {
-                    taskService.processTaskExpiry(task);
-                } else {
-                    context.getLogger().log("Task " + task.getTaskId() + " is not yet expired.");
+    public SQSBatchResponse handleExpiry(SQSEvent event, Context context) {
+        try (InvocationMetrics metrics = InvocationMetrics.start("handleExpiry", context)) {
+            List<SQSBatchResponse.BatchItemFailure> failures = new ArrayList<>();
+            Map<Task, String> messageIds = new IdentityHashMap<>();
+            List<Task> expiredTasks = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            metrics.count("Messages", event.getRecords().size());
+
+            for (SQSEvent.SQSMessage msg : event.getRecords()) {
+                try {
+                    Task task = objectMapper.readValue(msg.getBody(), Task.class);
+                    if (task.getDeadline() > 0 && task.getDeadline() < now) {
+                        messageIds.put(task, msg.getMessageId());
+                        expiredTasks.add(task);
+                    } else {
+                        context.getLogger().log("Task " + task.getTaskId() + " is not yet expired.");
+                    }
+                } catch (Exception e) {
+                    context.getLogger().log("Error reading SQS message " + msg.getMessageId() + ": " + e.getMessage());
+                    failures.add(new SQSBatchResponse.BatchItemFailure(msg.getMessageId()));
                 }
+            }
 
-            } catch (Exception e) {
-                context.getLogger().log("Error processing SQS message: " + e.getMessage());
-                throw new RuntimeException("Could not process message", e);
+            context.getLogger().log("Handling expiry for " + expiredTasks.size() + " tasks");
+            for (Task task : taskService.processTaskExpiries(expiredTasks)) {
+                context.getLogger().log("Error handling expiry for task ID: " + task.getTaskId());
+                failures.add(new SQSBatchResponse.BatchItemFailure(messageIds.get(task)));
             }
+
+            metrics.count("FailedMessages", failures.size());
+            return new SQSBatchResponse(failures);
         }
     }
 }
-
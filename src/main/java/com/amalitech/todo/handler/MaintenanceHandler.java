@@ -0,0 +1,52 @@
+package com.amalitech.todo.handler;
+
+import com.amalitech.todo.dto.request.MaintenanceRequest;
+import com.amalitech.todo.dto.response.MaintenanceResponse;
+import com.amalitech.todo.metrics.InvocationMetrics;
+import com.amalitech.todo.service.CapacityLimiter;
+import com.amalitech.todo.service.MaintenanceAction;
+import com.amalitech.todo.service.SegmentedScan;
+import com.amalitech.todo.service.ServiceRegistry;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Runs a maintenance action over the whole task table, invoked by hand with a MaintenanceRequest,
+ * or weekly by ReconcileStateMachine for reconcile. A table too large for one invocation is
+ * scanned in several: the run stops shortly before the Lambda timeout and returns its checkpoint,
+ * and the next invocation passes it back in; the state machine does so until complete is true.
+ */
+public class MaintenanceHandler implements RequestStreamHandler {
+
+    // Time left to finish the pages in flight and return the checkpoint.
+    private static final long STOP_MARGIN_MILLIS = 30_000;
+
+    private final ObjectMapper objectMapper = ServiceRegistry.objectMapper();
+
+    @Override
+    public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+        MaintenanceRequest request = objectMapper.readValue(input, MaintenanceRequest.class);
+        MaintenanceAction action = MaintenanceAction.named(request.action());
+
+        try (InvocationMetrics metrics = InvocationMetrics.start("maintenance:" + request.action(), context)) {
+            SegmentedScan scan = new SegmentedScan(ServiceRegistry.dynamoDBService(),
+                    new CapacityLimiter(request.readCapacityPerSecond()), context.getLogger()::log);
+            SegmentedScan.Result result = scan.run(action, request.checkpoint(), checkpoint -> {
+            }, () -> context.getRemainingTimeInMillis() < STOP_MARGIN_MILLIS);
+
+            context.getLogger().log("Maintenance " + request.action() + " scanned " + result.scanned() + " items, affected "
+                    + result.affected() + ", consumed " + result.consumedCapacity() + " read capacity units, "
+                    + (result.checkpoint().isComplete() ? "complete" : "to be resumed"));
+            metrics.count("Scanned", result.scanned());
+            metrics.count("Affected", result.affected());
+            metrics.count("ConsumedReadCapacity", result.consumedCapacity());
+            metrics.count("FailedSegments", result.failedSegments());
+            objectMapper.writeValue(output, MaintenanceResponse.of(request.action(), result));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.amalitech.todo.handler;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The parts of an API Gateway proxy event that the task routes use, read in one streaming pass.
+ * Everything else in the event (multi-value maps, identity, stage variables...) is skipped
+ * without being materialized.
+ */
+record ProxyEvent(String httpMethod,
+                  String resource,
+                  String userId,
+                  String taskId,
+                  Map<String, String> query,
+                  String ifNoneMatch,
+                  String accept,
+                  String acceptEncoding,
+                  String body) {
+
+    private static final String[] CLAIMS_SUB = {"authorizer", "claims", "sub"};
+
+    static ProxyEvent read(JsonFactory jsonFactory, InputStream input) throws IOException {
+        String httpMethod = null;
+        String resource = null;
+        String userId = null;
+        String taskId = null;
+        Map<String, String> query = Map.of();
+        String[] headers = new String[3];
+        String body = null;
+        boolean base64Body = false;
+
+        try (JsonParser parser = jsonFactory.createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Proxy event must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "httpMethod" -> httpMethod = parser.getValueAsString();
+                    case "resource" -> resource = parser.getValueAsString();
+                    case "body" -> body = parser.getValueAsString();
+                    case "isBase64Encoded" -> base64Body = value == JsonToken.VALUE_TRUE;
+                    case "queryStringParameters" -> query = readStrings(parser);
+                    case "pathParameters" -> taskId = readStrings(parser).get("taskId");
+                    case "headers" -> headers = readHeaders(parser, "If-None-Match", "Accept", "Accept-Encoding");
+                    case "requestContext" -> userId = readNested(parser, CLAIMS_SUB, 0);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+
+        if (base64Body && body != null) {
+            body = new String(Base64.getDecoder().decode(body), StandardCharsets.UTF_8);
+        }
+        return new ProxyEvent(httpMethod, resource, userId, taskId, query, headers[0], headers[1], headers[2], body);
+    }
+
+    private static Map<String, String> readStrings(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return Map.of();
+        }
+        Map<String, String> values = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            values.put(name, parser.getValueAsString());
+            parser.skipChildren();
+        }
+        return values;
+    }
+
+    /**
+     * Reads the values of the given headers, matched case-insensitively, in the order they are named.
+     */
+    private static String[] readHeaders(JsonParser parser, String... names) throws IOException {
+        String[] found = new String[names.length];
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return found;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            for (int i = 0; i < names.length; i++) {
+                if (name.equalsIgnoreCase(names[i])) {
+                    found[i] = parser.getValueAsString();
+                }
+            }
+            parser.skipChildren();
+        }
+        return found;
+    }
+
+    /**
+     * Follows {@code path} down through nested objects starting at the current one and returns the
+     * string at its end, skipping every sibling along the way.
+     */
+    private static String readNested(JsonParser parser, String[] path, int depth) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String found = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            boolean match = parser.currentName().equals(path[depth]);
+            parser.nextToken();
+            if (match && depth == path.length - 1) {
+                found = parser.getValueAsString();
+                parser.skipChildren();
+            } else if (match) {
+                found = readNested(parser, path, depth + 1);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return found;
+    }
+}
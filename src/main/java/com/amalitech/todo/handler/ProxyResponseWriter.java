@@ -0,0 +1,165 @@
+package com.amalitech.todo.handler;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Writes API Gateway proxy responses straight to the Lambda output stream. The CORS headers are
+ * rendered once per container, and JSON bodies are serialized directly into the escaped
+ * {@code body} string of the envelope instead of being built as a String first.
+ * Responses with an ETag are list responses, whose encoding is negotiated, so they also carry
+ * {@code Vary: Accept, Accept-Encoding}.
+ */
+final class ProxyResponseWriter {
+
+    private static final String HEADERS_JSON = renderHeaders(CorsHeaders.HEADERS);
+
+    private ProxyResponseWriter() {
+    }
+
+    static void write(OutputStream output, int statusCode, String etag, String body) throws IOException {
+        Writer writer = start(output, statusCode, etag, null);
+        new JsonStringWriter(writer).write(body);
+        end(writer, false);
+    }
+
+    /**
+     * Writes a body compressed with contentEncoding and already base64-encoded, as ResponseEncoding
+     * produces it. Base64 needs no escaping, so it goes into the envelope as it is.
+     */
+    static void writeEncoded(OutputStream output, int statusCode, String etag, String contentEncoding, String base64Body)
+            throws IOException {
+        Writer writer = start(output, statusCode, etag, contentEncoding);
+        writer.write(base64Body);
+        end(writer, true);
+    }
+
+    static void writeJson(OutputStream output, ObjectMapper objectMapper, int statusCode, String etag, Object value)
+            throws IOException {
+        Writer writer = start(output, statusCode, etag, null);
+        objectMapper.writeValue(new JsonStringWriter(writer), value);
+        end(writer, false);
+    }
+
+    static void writeError(OutputStream output, int statusCode, String message) throws IOException {
+        write(output, statusCode, null, "{\"error\":\"" + new String(JsonStringEncoder.getInstance().quoteAsString(message)) + "\"}");
+    }
+
+    private static Writer start(OutputStream output, int statusCode, String etag, String contentEncoding) throws IOException {
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        writer.write("{\"statusCode\":");
+        writer.write(Integer.toString(statusCode));
+        writer.write(",\"headers\":{");
+        writer.write(HEADERS_JSON);
+        if (etag != null) {
+            writer.write(",\"ETag\":\"");
+            writer.write(JsonStringEncoder.getInstance().quoteAsString(etag));
+            writer.write("\",\"Vary\":\"Accept, Accept-Encoding\"");
+        }
+        if (contentEncoding != null) {
+            writer.write(",\"Content-Encoding\":\"");
+            writer.write(contentEncoding);
+            writer.write('"');
+        }
+        writer.write("},\"body\":\"");
+        return writer;
+    }
+
+    private static void end(Writer writer, boolean base64Encoded) throws IOException {
+        writer.write(base64Encoded ? "\",\"isBase64Encoded\":true}" : "\"}");
+        writer.flush();
+    }
+
+    private static String renderHeaders(Map<String, String> headers) {
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        StringBuilder json = new StringBuilder();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (!json.isEmpty()) {
+                json.append(',');
+            }
+            json.append('"').append(encoder.quoteAsString(header.getKey())).append("\":\"")
+                    .append(encoder.quoteAsString(header.getValue())).append('"');
+        }
+        return json.toString();
+    }
+
+    /**
+     * Escapes everything written to it as the contents of a JSON string. Runs of characters that
+     * need no escaping are passed through in a single write. Closing it only flushes, so the
+     * envelope can be finished after the body serializer closes its target.
+     */
+    private static final class JsonStringWriter extends Writer {
+
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+        private final Writer out;
+
+        JsonStringWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            int run = offset;
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                char c = chars[i];
+                if (c != '"' && c != '\\' && c >= 0x20) {
+                    continue;
+                }
+                out.write(chars, run, i - run);
+                escape(c);
+                run = i + 1;
+            }
+            out.write(chars, run, end - run);
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            int run = offset;
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                char c = text.charAt(i);
+                if (c != '"' && c != '\\' && c >= 0x20) {
+                    continue;
+                }
+                out.write(text, run, i - run);
+                escape(c);
+                run = i + 1;
+            }
+            out.write(text, run, end - run);
+        }
+
+        private void escape(char c) throws IOException {
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    out.write("\\u00");
+                    out.write(HEX[c >> 4]);
+                    out.write(HEX[c & 0xF]);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.amalitech.todo.handler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content negotiation for list responses. The body is compressed in the Lambda and returned
+ * base64-encoded in the proxy response, which API Gateway decodes back to bytes when the first
+ * type in the request's Accept header is one of the API's binary media types. The API declares
+ * only application/json binary, so a client that does not ask for it first gets the plain body
+ * rather than base64 text. Bodies under MIN_LENGTH go out as they are: the compression framing
+ * and base64 overhead would outweigh the saving.
+ */
+final class ResponseEncoding {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    /**
+     * Must match BinaryMediaTypes of TodoApi in template.yaml.
+     */
+    private static final String BINARY_MEDIA_TYPE = "application/json";
+
+    private static final int MIN_LENGTH = 1024;
+
+    private ResponseEncoding() {
+    }
+
+    /**
+     * Picks gzip or deflate from an Accept-Encoding header, preferring gzip, or null for none.
+     * A coding listed with q=0 is refused, as is everything when "*;q=0" is the only match.
+     * Nothing is picked unless Accept lists BINARY_MEDIA_TYPE first.
+     */
+    static String negotiate(String accept, String acceptEncoding) {
+        if (acceptEncoding == null || !acceptsBinaryFirst(accept)) {
+            return null;
+        }
+        Double gzip = null;
+        Double deflate = null;
+        Double any = null;
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = coding.split(";");
+            double quality = qualityOf(parts);
+            switch (parts[0].trim()) {
+                case GZIP, "x-gzip" -> gzip = quality;
+                case DEFLATE -> deflate = quality;
+                case "*" -> any = quality;
+                default -> {
+                }
+            }
+        }
+        if (gzip == null) {
+            gzip = any;
+        }
+        if (deflate == null) {
+            deflate = any;
+        }
+        if (gzip != null && gzip > 0 && (deflate == null || gzip >= deflate)) {
+            return GZIP;
+        }
+        return deflate != null && deflate > 0 ? DEFLATE : null;
+    }
+
+    private static boolean acceptsBinaryFirst(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        int end = accept.indexOf(',');
+        String first = end >= 0 ? accept.substring(0, end) : accept;
+        int parameters = first.indexOf(';');
+        if (parameters >= 0) {
+            first = first.substring(0, parameters);
+        }
+        return first.trim().equalsIgnoreCase(BINARY_MEDIA_TYPE);
+    }
+
+    private static double qualityOf(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    static boolean worthCompressing(String body) {
+        return body.length() >= MIN_LENGTH;
+    }
+
+    /**
+     * Compresses the body with the given coding and returns it base64-encoded, ready for the
+     * body of a proxy response with isBase64Encoded set.
+     */
+    static String encode(String body, String encoding) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(256, body.length() / 4));
+        try (OutputStream out = GZIP.equals(encoding) ? new GZIPOutputStream(bytes, 8192) : new DeflaterOutputStream(bytes)) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+}
@@ -0,0 +1,48 @@
+package com.amalitech.todo.handler;
+
+import com.amalitech.todo.dto.request.SubscriptionRequest;
+import com.amalitech.todo.metrics.InvocationMetrics;
+import com.amalitech.todo.service.ServiceRegistry;
+import com.amalitech.todo.service.SubscriptionService;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SubscriptionHandler implements RequestHandler<SQSEvent, SQSBatchResponse> {
+
+    private final SubscriptionService subscriptionService;
+    private final ObjectMapper objectMapper = ServiceRegistry.objectMapper();
+
+    public SubscriptionHandler() {
+        this.subscriptionService = ServiceRegistry.subscriptionService();
+    }
+
+    /**
+     * This function is triggered by the subscription queue that AuthHandler writes to.
+     * It subscribes each new or changed email to the notifications topic and records the result in
+     * the subscription registry. Only the messages that failed are reported back for a retry.
+     */
+    @Override
+    public SQSBatchResponse handleRequest(SQSEvent event, Context context) {
+        try (InvocationMetrics metrics = InvocationMetrics.start("subscribe", context)) {
+            List<SQSBatchResponse.BatchItemFailure> failures = new ArrayList<>();
+            for (SQSEvent.SQSMessage msg : event.getRecords()) {
+                try {
+                    SubscriptionRequest request = objectMapper.readValue(msg.getBody(), SubscriptionRequest.class);
+                    subscriptionService.processSubscription(request);
+                } catch (Exception e) {
+                    context.getLogger().log("Error processing subscription message " + msg.getMessageId() + ": " + e.getMessage());
+                    failures.add(new SQSBatchResponse.BatchItemFailure(msg.getMessageId()));
+                }
+            }
+            metrics.count("Messages", event.getRecords().size());
+            metrics.count("FailedMessages", failures.size());
+            return new SQSBatchResponse(failures);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.amalitech.todo.handler;
+
+import com.amalitech.todo.model.Task;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Jackson writers for sparse fieldsets: {@code fields=title,deadline} serializes only those Task
+ * properties, plus taskId so items stay addressable. A fieldset is parsed into a canonical,
+ * sorted form, and each distinct one gets a writer built once and kept, so its serializers are
+ * resolved on first use only. There are at most 2^7 fieldsets, which bounds the cache.
+ */
+final class TaskFieldWriters {
+
+    static final Set<String> FIELDS =
+            Set.of("userId", "taskId", "title", "description", "completed", "deadline", "createdAt", "version");
+
+    private static final String FILTER = "taskFields";
+
+    @JsonFilter(FILTER)
+    private abstract static class FilteredTask {
+    }
+
+    private final ObjectWriter allFields;
+    private final ObjectMapper filteredMapper;
+    private final Map<String, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    TaskFieldWriters(ObjectMapper objectMapper) {
+        this.allFields = objectMapper.writer();
+        this.filteredMapper = objectMapper.copy().addMixIn(Task.class, FilteredTask.class);
+    }
+
+    /**
+     * The canonical form of a fields parameter, or null when every field is wanted.
+     * Throws IllegalArgumentException for a property Task does not have.
+     */
+    static String parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> names = new TreeSet<>();
+        names.add("taskId");
+        for (String name : fields.split(",")) {
+            String field = name.trim();
+            if (!FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+            names.add(field);
+        }
+        return names.size() == FIELDS.size() ? null : String.join(",", names);
+    }
+
+    /**
+     * The writer for a fieldset returned by parse.
+     */
+    ObjectWriter writerFor(String fields) {
+        if (fields == null) {
+            return allFields;
+        }
+        return writers.computeIfAbsent(fields, key -> filteredMapper.writer(new SimpleFilterProvider()
+                .addFilter(FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(Set.of(key.split(","))))));
+    }
+}
@@ -0,0 +1,64 @@
+package com.amalitech.todo.handler;
+
+import com.amalitech.todo.dto.request.ListTasksRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Serialized list responses kept by a warm container, keyed by user and ETag. The ETag carries the
+ * user's list version, so entries never go stale: a write bumps the version and the old entries
+ * simply age out of the LRU. Compressed bodies are kept next to the plain ones, under their
+ * content coding, so a repeat request for the same page is not compressed again.
+ */
+final class TaskListCache {
+
+    private static final int MAX_ENTRIES = 128;
+    private static final int MAX_BODY_LENGTH = 256 * 1024;
+
+    private final Map<String, String> bodies = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * The ETag of a list response: the user's list version plus a digest of the page being asked for,
+     * since different limits, cursors, views, filters and fieldsets of the same version have
+     * different bodies. fields is the canonical form from TaskFieldWriters.parse.
+     */
+    static String etagOf(long listVersion, ListTasksRequest listRequest, String fields) {
+        String shape = listRequest.limit() + "|" + listRequest.cursor() + "|" + listRequest.summaryOnly()
+                + "|" + listRequest.status() + "|" + listRequest.dueAfter() + "|" + listRequest.dueBefore() + "|" + fields;
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(shape.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        return "\"" + listVersion + "-" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 16) + "\"";
+    }
+
+    /**
+     * The body encoded with the given content coding (base64 for compressed codings), or the plain
+     * body when encoding is null.
+     */
+    synchronized String get(String userId, String etag, String encoding) {
+        return bodies.get(keyOf(userId, etag, encoding));
+    }
+
+    synchronized void put(String userId, String etag, String encoding, String body) {
+        if (body.length() <= MAX_BODY_LENGTH) {
+            bodies.put(keyOf(userId, etag, encoding), body);
+        }
+    }
+
+    private static String keyOf(String userId, String etag, String encoding) {
+        return encoding != null ? userId + " " + etag + " " + encoding : userId + " " + etag;
+    }
+}
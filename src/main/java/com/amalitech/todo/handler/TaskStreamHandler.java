@@ -0,0 +1,325 @@
+package com.amalitech.todo.handler;
+
+import com.amalitech.todo.dto.request.BatchCreateTasksRequest;
+import com.amalitech.todo.dto.request.BatchTaskIdsRequest;
+import com.amalitech.todo.dto.request.CreateTaskRequest;
+import com.amalitech.todo.dto.request.ListTasksRequest;
+import com.amalitech.todo.dto.request.TaskSummaryRequest;
+import com.amalitech.todo.dto.request.UpdateTaskRequest;
+import com.amalitech.todo.dto.response.BatchTaskResponse;
+import com.amalitech.todo.dto.response.TaskSummaryResponse;
+import com.amalitech.todo.exception.TaskVersionConflictException;
+import com.amalitech.todo.metrics.InvocationMetrics;
+import com.amalitech.todo.model.Task;
+import com.amalitech.todo.service.ServiceRegistry;
+import com.amalitech.todo.service.TaskService;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Single entry point for every API route, /health included, dispatched on the event's resource and
+ * HTTP method. Reads the proxy event and writes the response envelope straight to the streams.
+ */
+public class TaskStreamHandler implements RequestStreamHandler {
+
+    private static final String HEALTH_BODY = "{\"status\":\"healthy\",\"message\":\"API is working\"}";
+
+    private final TaskService taskService;
+    private final ObjectMapper objectMapper = ServiceRegistry.objectMapper();
+    private final TaskListCache listCache = new TaskListCache();
+    private final TaskFieldWriters fieldWriters = new TaskFieldWriters(objectMapper);
+
+    public TaskStreamHandler() {
+        this(ServiceRegistry.taskService());
+    }
+
+    public TaskStreamHandler(TaskService taskService) {
+        this.taskService = taskService;
+    }
+
+    /**
+     * An event that is not a proxy event, or whose body is not valid base64, gets a 400 and is
+     * counted under its own Operation, since it has no route.
+     */
+    @Override
+    public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+        ProxyEvent event;
+        try {
+            event = ProxyEvent.read(objectMapper.getFactory(), input);
+        } catch (IOException | IllegalArgumentException e) {
+            try (InvocationMetrics metrics = InvocationMetrics.start("MalformedEvent", context)) {
+                metrics.count("MalformedEvents", 1);
+                context.getLogger().log("Malformed proxy event: " + e.getMessage());
+                ProxyResponseWriter.writeError(output, 400, "Malformed request");
+            }
+            return;
+        }
+        String route = event.httpMethod() + " " + event.resource();
+        InvocationMetrics metrics = InvocationMetrics.start(route, context);
+        try {
+            switch (route) {
+                case "POST /tasks" -> createTask(event, output, context);
+                case "GET /tasks" -> getTasks(event, output, context);
+                case "GET /tasks/summary" -> getTaskSummary(event, output, context);
+                case "PUT /tasks/{taskId}" -> updateTask(event, output, context);
+                case "DELETE /tasks/{taskId}" -> deleteTask(event, output, context);
+                case "POST /tasks:batch" -> createTasks(event, output, context);
+                case "DELETE /tasks:batch" -> deleteTasks(event, output, context);
+                case "POST /tasks:batchGet" -> getTasksByIds(event, output, context);
+                case "GET /health" -> ProxyResponseWriter.write(output, 200, null, HEALTH_BODY);
+                default -> {
+                    context.getLogger().log("No route for " + route);
+                    ProxyResponseWriter.writeError(output, 404, "Route not found");
+                }
+            }
+        } finally {
+            metrics.close();
+        }
+    }
+
+    private String getUserId(ProxyEvent event) {
+        if (event.userId() == null) {
+            throw new RuntimeException("User ID (sub) not found in claims");
+        }
+        return event.userId();
+    }
+
+    /**
+     * Parses the expected version a delete may carry, null when absent.
+     */
+    private static Long parseVersion(String version) {
+        if (version == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(version);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("version must be a number", e);
+        }
+    }
+
+    private ListTasksRequest getListTasksRequest(ProxyEvent event) {
+        return ListTasksRequest.fromQuery(event.query());
+    }
+
+    private void createTask(ProxyEvent event, OutputStream output, Context context) throws IOException {
+        Task createdTask;
+        try {
+            String userId = getUserId(event);
+            CreateTaskRequest createTaskRequest = objectMapper.readValue(event.body(), CreateTaskRequest.class);
+            createdTask = taskService.createTask(userId, createTaskRequest);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            context.getLogger().log("Invalid create task request: " + e.getMessage());
+            ProxyResponseWriter.writeError(output, 400, e.getMessage());
+            return;
+        } catch (Exception e) {
+            context.getLogger().log("Error creating task: " + e.getMessage());
+            ProxyResponseWriter.writeError(output, 500, "Could not create task");
+            return;
+        }
+        ProxyResponseWriter.writeJson(output, objectMapper, 201, null, createdTask);
+    }
+
+    /**
+     * Lists a page of tasks, restricted to the requested fields and compressed when the client
+     * accepts it. Both the plain and the compressed body are cached under the page's ETag.
+     */
+    private void getTasks(ProxyEvent event, OutputStream output, Context context) throws IOException {
+        String etag;
+        String body;
+        String encoding;
+        try {
+            String userId = getUserId(event);
+            ListTasksRequest listRequest = getListTasksRequest(event);
+            String fields = TaskFieldWriters.parse(event.query().get("fields"));
+            etag = TaskListCache.etagOf(taskService.getListVersion(userId), listRequest, fields);
+            if (etag.equals(event.ifNoneMatch())) {
+                ProxyResponseWriter.write(output, 304, etag, "");
+                return;
+            }
+
+            encoding = ResponseEncoding.negotiate(event.accept(), event.acceptEncoding());
+            String encoded = encoding != null ? listCache.get(userId, etag, encoding) : null;
+            if (encoded != null) {
+                ProxyResponseWriter.writeEncoded(output, 200, etag, encoding, encoded);
+                return;
+            }
+
+            body = listCache.get(userId, etag, null);
+            if (body == null) {
+                body = fieldWriters.writerFor(fields).writeValueAsString(taskService.getTasks(userId, listRequest));
+                listCache.put(userId, etag, null, body);
+            }
+            if (encoding != null && ResponseEncoding.worthCompressing(body)) {
+                body = ResponseEncoding.encode(body, encoding);
+                listCache.put(userId, etag, encoding, body);
+            } else {
+                encoding = null;
+            }
+        } catch (IllegalArgumentException e) {
+            context.getLogger().log("Invalid list tasks request: " + e.getMessage());
+            ProxyResponseWriter.writeError(output, 400, e.getMessage());
+            return;
+        } catch (Exception e) {
+            context.getLogger().log("Error getting tasks: " + e.getMessage());
+            ProxyResponseWriter.writeError(output, 500, "Could not retrieve tasks");
+            return;
+        }
+        if (encoding != null) {
+            ProxyResponseWriter.writeEncoded(output, 200, etag, encoding, body);
+        } else {
+            ProxyResponseWriter.write(output, 200, etag, body);
+        }
+    }
+
+    /**
+     * Reads the user's counters from their summary item, one GetItem however many tasks they have.
+     */
+    private void getTaskSummary(ProxyEvent event, OutputStream output, Context context) throws IOException {
+        TaskSummaryResponse response;
+        try {
+            String userId = getUserId(event);
+            TaskSummaryRequest summaryRequest = TaskSummaryRequest.fromQuery(event.query());
+            long now = System.currentTimeMillis();
+            response = TaskSummaryResponse.of(taskService.getTaskSummary(userId, now), now, summaryRequest.utcOffsetMinutes());
+        } catch (IllegalArgumentException e) {
+            context.getLogger().log("Invalid task summary request: " + e.getMessage());
+            ProxyResponseWriter.writeError(output, 400, e.getMessage());
+            return;
+        } catch (Exception e) {
+            context.getLogger().log("Error getting task summary: " + e.getMessage());
+            ProxyResponseWriter.writeError(output, 500, "Could not retrieve task summary");
+            return;
+        }
+        ProxyResponseWriter.writeJson(output, objectMapper, 200, null, response);
+    }
+
+    private void updateTask(ProxyEvent event, OutputStream output, Context context) throws IOException {
+        Task updatedTask;
+        try {
+            String userId = getUserId(event);
+            UpdateTaskRequest updateTaskRequest = objectMapper.readValue(event.body(), UpdateTaskRequest.class);
+            updatedTask = taskService.updateTask(userId, event.taskId(), updateTaskRequest);
+        } catch (TaskVersionConflictException e) {
+            versionConflict(e, output, context);
+            return;
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            context.getLogger().log("Invalid update task request: " + e.getMessage());
+            ProxyResponseWriter.writeError(output, 400, e.getMessage());
+            return;
+        } catch (Exception e) {
+            context.getLogger().log("Error updating task: " + e.getMessage());
+            ProxyResponseWriter.writeError(output, 500, "Could not update task");
+            return;
+        }
+
+        if (updatedTask == null) {
+            ProxyResponseWriter.writeError(output, 404, "Task not found");
+            return;
+        }
+        ProxyResponseWriter.writeJson(output, objectMapper, 200, null, updatedTask);
+    }
+
+    private void deleteTask(ProxyEvent event, OutputStream output, Context context) throws IOException {
+        boolean deleted;
+        try {
+            String userId = getUserId(event);
+            Long expectedVersion = parseVersion(event.query().get("version"));
+            deleted = taskService.deleteTask(userId, event.taskId(), expectedVersion);
+        } catch (TaskVersionConflictException e) {
+            versionConflict(e, output, context);
+            return;
+        } catch (IllegalArgumentException e) {
+            context.getLogger().log("Invalid delete task request: " + e.getMessage());
+            ProxyResponseWriter.writeError(output, 400, e.getMessage());
+            return;
+        } catch (Exception e) {
+            context.getLogger().log("Error deleting task: " + e.getMessage());
+            ProxyResponseWriter.writeError(output, 500, "Could not delete task");
+            return;
+        }
+
+        if (!deleted) {
+            ProxyResponseWriter.writeError(output, 404, "Task not found");
+            return;
+        }
+        ProxyResponseWriter.write(output, 204, null, "");
+    }
+
+    private void createTasks(ProxyEvent event, OutputStream output, Context context) throws IOException {
+        BatchTaskResponse response;
+        try {
+            String userId = getUserId(event);
+            BatchCreateTasksRequest batchRequest = objectMapper.readValue(event.body(), BatchCreateTasksRequest.class);
+            if (batchRequest.tasks() == null) {
+                throw new IllegalArgumentException("tasks is required");
+            }
+            response = new BatchTaskResponse(taskService.createTasks(userId, batchRequest.tasks()));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            invalidBatch(e, output, context);
+            return;
+        } catch (Exception e) {
+            context.getLogger().log("Error creating tasks: " + e.getMessage());
+            ProxyResponseWriter.writeError(output, 500, "Could not create tasks");
+            return;
+        }
+        ProxyResponseWriter.writeJson(output, objectMapper, 200, null, response);
+    }
+
+    private void getTasksByIds(ProxyEvent event, OutputStream output, Context context) throws IOException {
+        BatchTaskResponse response;
+        try {
+            String userId = getUserId(event);
+            response = new BatchTaskResponse(taskService.getTasksByIds(userId, getTaskIds(event)));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            invalidBatch(e, output, context);
+            return;
+        } catch (Exception e) {
+            context.getLogger().log("Error getting tasks: " + e.getMessage());
+            ProxyResponseWriter.writeError(output, 500, "Could not retrieve tasks");
+            return;
+        }
+        ProxyResponseWriter.writeJson(output, objectMapper, 200, null, response);
+    }
+
+    private void deleteTasks(ProxyEvent event, OutputStream output, Context context) throws IOException {
+        BatchTaskResponse response;
+        try {
+            String userId = getUserId(event);
+            response = new BatchTaskResponse(taskService.deleteTasks(userId, getTaskIds(event)));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            invalidBatch(e, output, context);
+            return;
+        } catch (Exception e) {
+            context.getLogger().log("Error deleting tasks: " + e.getMessage());
+            ProxyResponseWriter.writeError(output, 500, "Could not delete tasks");
+            return;
+        }
+        ProxyResponseWriter.writeJson(output, objectMapper, 200, null, response);
+    }
+
+    private List<String> getTaskIds(ProxyEvent event) throws IOException {
+        BatchTaskIdsRequest batchRequest = objectMapper.readValue(event.body(), BatchTaskIdsRequest.class);
+        if (batchRequest.taskIds() == null) {
+            throw new IllegalArgumentException("taskIds is required");
+        }
+        return batchRequest.taskIds();
+    }
+
+    private void versionConflict(TaskVersionConflictException e, OutputStream output, Context context) throws IOException {
+        context.getLogger().log(e.getMessage());
+        ProxyResponseWriter.writeError(output, 409, "Task was modified by another request");
+    }
+
+    private void invalidBatch(Exception e, OutputStream output, Context context) throws IOException {
+        context.getLogger().log("Invalid bulk request: " + e.getMessage());
+        ProxyResponseWriter.writeError(output, 400, e.getMessage());
+    }
+}
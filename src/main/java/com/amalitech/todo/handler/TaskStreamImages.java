@@ -0,0 +1,66 @@
+package com.amalitech.todo.handler;
+
+import com.amalitech.todo.model.Task;
+import com.amalitech.todo.model.TaskDescription;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue;
+import software.amazon.awssdk.core.SdkBytes;
+
+import java.util.Map;
+
+/**
+ * Converts DynamoDB stream images to tasks. Attributes that are absent from the image, such as a
+ * task created without a deadline or description, keep their defaults instead of failing.
+ */
+final class TaskStreamImages {
+
+    private TaskStreamImages() {
+    }
+
+    static Task toTask(Map<String, AttributeValue> image) {
+        if (image == null) {
+            return null;
+        }
+
+        Task task = new Task();
+        task.setUserId(string(image, "userId"));
+        task.setTaskId(string(image, "taskId"));
+        task.setTitle(string(image, "title"));
+        task.setStoredDescription(description(image.get("description")));
+        task.setCompleted(bool(image, "completed"));
+        task.setDeadline(number(image, "deadline"));
+        task.setCreatedAt(number(image, "createdAt"));
+        task.setVersion(number(image, "version"));
+        if (image.get("deadlineBucket") != null) {
+            task.setDeadlineBucket(number(image, "deadlineBucket"));
+        }
+        return task;
+    }
+
+    /**
+     * Long descriptions are stored compressed as binary; see TaskDescription.
+     */
+    private static TaskDescription description(AttributeValue value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.getB() != null) {
+            return TaskDescription.fromBinary(SdkBytes.fromByteBuffer(value.getB()));
+        }
+        return TaskDescription.of(value.getS());
+    }
+
+    private static String string(Map<String, AttributeValue> image, String name) {
+        AttributeValue value = image.get(name);
+        return value != null ? value.getS() : null;
+    }
+
+    private static boolean bool(Map<String, AttributeValue> image, String name) {
+        AttributeValue value = image.get(name);
+        return value != null && Boolean.TRUE.equals(value.getBOOL());
+    }
+
+    private static long number(Map<String, AttributeValue> image, String name) {
+        AttributeValue value = image.get(name);
+        return value != null && value.getN() != null ? Long.parseLong(value.getN()) : 0L;
+    }
+}
@@ -0,0 +1,188 @@
+package com.amalitech.todo.local;
+
+import com.amalitech.todo.handler.TaskStreamHandler;
+import com.amalitech.todo.service.InMemoryTaskRepository;
+import com.amalitech.todo.service.InMemoryUserMetaService;
+import com.amalitech.todo.service.MeteredTaskRepository;
+import com.amalitech.todo.service.ServiceRegistry;
+import com.amalitech.todo.service.TaskService;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the task API over plain HTTP on the JDK HTTP server, one virtual thread per request, so
+ * the full request path can be load tested locally. Each request is turned into the proxy event
+ * API Gateway would send and handed to TaskStreamHandler, the handler deployed behind the API.
+ *
+ * <p>TASK_ENGINE=memory (the default) runs on InMemoryTaskRepository and InMemoryUserMetaService
+ * with no AWS access at all; TASK_ENGINE=dynamodb uses the regular ServiceRegistry wiring, which
+ * DYNAMODB_ENDPOINT can point at DynamoDB Local. There is no Cognito in front of it: the caller
+ * names the user in the X-User-Id header. With METRICS_ENABLED=true each request writes its EMF
+ * metrics to stdout, as it would in Lambda.
+ */
+public final class LocalServer {
+
+    private static final String USER_HEADER = "X-User-Id";
+    private static final String DEFAULT_USER = "local-user";
+    private static final String SUMMARY_PATH = "/tasks/summary";
+
+    private final TaskStreamHandler handler;
+    private final ObjectMapper objectMapper = ServiceRegistry.objectMapper();
+    private final Context context = new LocalContext();
+
+    private LocalServer(TaskStreamHandler handler) {
+        this.handler = handler;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = Integer.parseInt(Objects.requireNonNullElse(System.getenv("PORT"), "8080"));
+        boolean dynamoDb = "dynamodb".equals(System.getenv("TASK_ENGINE"));
+        TaskService taskService = dynamoDb ? ServiceRegistry.taskService() : inMemoryTaskService();
+
+        HttpServer server = start(port, new TaskStreamHandler(taskService));
+        System.out.println("Task API listening on http://localhost:" + server.getAddress().getPort()
+                + " (" + (dynamoDb ? "dynamodb" : "memory") + " engine)");
+    }
+
+    /**
+     * A TaskService that touches nothing outside the process. The API routes never send
+     * notifications or use the async clients, so those fail loudly if something starts to.
+     */
+    public static TaskService inMemoryTaskService() {
+        MeteredTaskRepository taskRepository = new MeteredTaskRepository(new InMemoryTaskRepository());
+        // No stream processor runs locally, so summaries are counted from the tasks on every read.
+        InMemoryUserMetaService userMetaService = new InMemoryUserMetaService(taskRepository::getTaskStatesForUser);
+        return new TaskService(
+                () -> taskRepository,
+                () -> {
+                    throw new IllegalStateException("Notifications are not available in memory mode");
+                },
+                () -> {
+                    throw new IllegalStateException("Async DynamoDB is not available in memory mode");
+                },
+                () -> {
+                    throw new IllegalStateException("Async notifications are not available in memory mode");
+                },
+                () -> userMetaService);
+    }
+
+    /**
+     * Starts serving on the given port, 0 for any free port, and returns the running server.
+     */
+    public static HttpServer start(int port, TaskStreamHandler handler) throws IOException {
+        // Headers and body go out in separate writes; without TCP_NODELAY each response waits on a delayed ACK.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        LocalServer localServer = new LocalServer(handler);
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 4096);
+        server.createContext("/", localServer::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        return server;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            ByteArrayOutputStream response = new ByteArrayOutputStream(1024);
+            handler.handleRequest(new ByteArrayInputStream(toEvent(exchange)), response, context);
+            write(exchange, objectMapper.readTree(response.toByteArray()));
+        }
+    }
+
+    private static boolean isTaskPath(String path) {
+        return path.startsWith("/tasks/") && path.indexOf('/', 7) < 0;
+    }
+
+    /**
+     * The API Gateway resource a path matches, which is what TaskStreamHandler routes on.
+     */
+    private static String resourceOf(String path) {
+        return isTaskPath(path) && !path.equals(SUMMARY_PATH) ? "/tasks/{taskId}" : path;
+    }
+
+    /**
+     * Builds the proxy event API Gateway would send for the request, with the user from the
+     * X-User-Id header standing in for the Cognito claims.
+     */
+    private byte[] toEvent(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String resource = resourceOf(path);
+        ObjectNode event = objectMapper.createObjectNode();
+        event.put("resource", resource);
+        event.put("path", path);
+        event.put("httpMethod", exchange.getRequestMethod());
+
+        ObjectNode headers = event.putObject("headers");
+        exchange.getRequestHeaders().forEach((name, values) -> headers.put(name, values.get(0)));
+        event.set("queryStringParameters", objectMapper.valueToTree(queryOf(exchange.getRequestURI().getRawQuery())));
+        if (!resource.equals(path)) {
+            event.putObject("pathParameters").put("taskId", path.substring(7));
+        }
+
+        String userId = Objects.requireNonNullElse(exchange.getRequestHeaders().getFirst(USER_HEADER), DEFAULT_USER);
+        event.putObject("requestContext").putObject("authorizer").putObject("claims").put("sub", userId);
+
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        event.put("body", body.length > 0 ? new String(body, StandardCharsets.UTF_8) : null);
+        event.put("isBase64Encoded", false);
+        return objectMapper.writeValueAsBytes(event);
+    }
+
+    private static Map<String, String> queryOf(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return null;
+        }
+        Map<String, String> query = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            int split = pair.indexOf('=');
+            String name = split < 0 ? pair : pair.substring(0, split);
+            String value = split < 0 ? "" : pair.substring(split + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void write(HttpExchange exchange, JsonNode response) throws IOException {
+        response.path("headers").fields().forEachRemaining(
+                header -> exchange.getResponseHeaders().put(header.getKey(), List.of(header.getValue().asText())));
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+
+        JsonNode bodyNode = response.path("body");
+        byte[] body;
+        if (!bodyNode.isTextual()) {
+            body = new byte[0];
+        } else if (response.path("isBase64Encoded").asBoolean()) {
+            // API Gateway decodes base64 bodies, such as compressed list pages, back to bytes.
+            body = Base64.getDecoder().decode(bodyNode.asText());
+        } else {
+            body = bodyNode.asText().getBytes(StandardCharsets.UTF_8);
+        }
+        int status = response.path("statusCode").asInt();
+        boolean noBody = status == 204 || status == 304 || body.length == 0;
+        exchange.sendResponseHeaders(status, noBody ? -1 : body.length);
+        if (!noBody) {
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.amalitech.todo.local;
+
+import com.amalitech.todo.dto.request.MaintenanceRequest;
+import com.amalitech.todo.service.CapacityLimiter;
+import com.amalitech.todo.service.MaintenanceAction;
+import com.amalitech.todo.service.ScanCheckpoint;
+import com.amalitech.todo.service.SegmentedScan;
+import com.amalitech.todo.service.ServiceRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Command-line form of MaintenanceHandler, for backfills run from a workstation:
+ *
+ * <pre>
+ * MaintenanceTool migrate|reschedule|verify|reconcile [--segments N] [--read-capacity UNITS] [--checkpoint FILE]
+ * </pre>
+ *
+ * <p>The checkpoint is written to FILE (maintenance-ACTION.json by default) after every page, so
+ * a run that is stopped or fails resumes from it when started again with the same action; the
+ * file is deleted once the scan is complete. It uses the regular ServiceRegistry wiring: TASKS_TABLE
+ * names the table and DYNAMODB_ENDPOINT can point it at DynamoDB Local.
+ */
+public final class MaintenanceTool {
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 10_000;
+
+    private MaintenanceTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length % 2 == 0) {
+            System.err.println("Usage: MaintenanceTool migrate|reschedule|verify|reconcile"
+                    + " [--segments N] [--read-capacity UNITS] [--checkpoint FILE]");
+            System.exit(2);
+        }
+        String action = args[0];
+        Integer segments = null;
+        Double readCapacity = null;
+        Path checkpointFile = Path.of("maintenance-" + action + ".json");
+        for (int i = 1; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--segments" -> segments = Integer.parseInt(args[i + 1]);
+                case "--read-capacity" -> readCapacity = Double.parseDouble(args[i + 1]);
+                case "--checkpoint" -> checkpointFile = Path.of(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        ObjectMapper objectMapper = ServiceRegistry.objectMapper();
+        ScanCheckpoint resumeFrom = Files.exists(checkpointFile)
+                ? objectMapper.readValue(checkpointFile.toFile(), ScanCheckpoint.class)
+                : null;
+        MaintenanceRequest request = new MaintenanceRequest(action, segments, readCapacity, resumeFrom);
+        MaintenanceAction maintenanceAction = MaintenanceAction.named(action);
+        System.out.println((resumeFrom != null ? "Resuming " : "Starting ") + action + " over "
+                + request.segments() + " segments at " + request.readCapacityPerSecond() + " read capacity units/s");
+
+        Path file = checkpointFile;
+        long[] lastProgress = {System.currentTimeMillis()};
+        SegmentedScan scan = new SegmentedScan(ServiceRegistry.dynamoDBService(),
+                new CapacityLimiter(request.readCapacityPerSecond()), System.err::println);
+        SegmentedScan.Result result = scan.run(maintenanceAction, request.checkpoint(), checkpoint -> {
+            write(objectMapper, file, checkpoint);
+            long now = System.currentTimeMillis();
+            if (now - lastProgress[0] >= PROGRESS_INTERVAL_MILLIS) {
+                lastProgress[0] = now;
+                System.out.println(checkpoint.completed().size() + "/" + checkpoint.totalSegments() + " segments done");
+            }
+        }, () -> false);
+
+        System.out.println(action + " scanned " + result.scanned() + " items, affected " + result.affected()
+                + ", consumed " + result.consumedCapacity() + " read capacity units");
+        if (result.checkpoint().isComplete()) {
+            Files.deleteIfExists(checkpointFile);
+        } else {
+            System.out.println(result.failedSegments() + " segments failed; run again to resume from " + checkpointFile);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Replaces the checkpoint file in one step, so a crash mid-write leaves the previous one.
+     */
+    private static void write(ObjectMapper objectMapper, Path file, ScanCheckpoint checkpoint) {
+        try {
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            objectMapper.writeValue(temporary.toFile(), checkpoint);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write checkpoint " + file, e);
+        }
+    }
+}
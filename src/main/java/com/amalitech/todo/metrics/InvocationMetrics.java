@@ -0,0 +1,234 @@
+package com.amalitech.todo.metrics;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Metrics recorded during one invocation, written out as CloudWatch Embedded Metric Format (EMF)
+ * when the invocation closes. CloudWatch extracts the metrics from the log line itself, so nothing
+ * is sent to the CloudWatch API on the request path.
+ *
+ * <p>A handler opens the scope with {@link #start} and closes it when it returns; in between,
+ * {@link #current()} returns it on the handler's thread and on any thread it starts, such as the
+ * virtual threads of a sweep. Everything is recorded under the Operation dimension. Latencies and
+ * per-call values keep every sample so CloudWatch can compute percentiles; counts are summed.
+ *
+ * <p>Metrics are on inside Lambda and off elsewhere, unless METRICS_ENABLED says otherwise. When
+ * off, start and current return an instance that ignores everything.
+ */
+public final class InvocationMetrics implements AutoCloseable {
+
+    private static final String NAMESPACE = Objects.requireNonNullElse(System.getenv("METRICS_NAMESPACE"), "TodoApp");
+    private static final String MILLISECONDS = "Milliseconds";
+    private static final String COUNT = "Count";
+    // EMF limits per log event.
+    private static final int MAX_VALUES_PER_METRIC = 100;
+    private static final int MAX_METRICS_PER_EVENT = 100;
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final InheritableThreadLocal<InvocationMetrics> CURRENT = new InheritableThreadLocal<>();
+    private static final AtomicBoolean COLD_START = new AtomicBoolean(true);
+    private static final InvocationMetrics DISABLED = new InvocationMetrics(null, null, null);
+
+    private static volatile Consumer<String> sink = defaultSink();
+
+    private final String operation;
+    private final String requestId;
+    private final Consumer<String> out;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Metric> metrics = new LinkedHashMap<>();
+    private boolean closed;
+
+    private record Metric(String unit, boolean summed, List<Double> values) {}
+
+    private InvocationMetrics(String operation, String requestId, Consumer<String> out) {
+        this.operation = operation;
+        this.requestId = requestId;
+        this.out = out;
+    }
+
+    private static Consumer<String> defaultSink() {
+        String enabled = System.getenv("METRICS_ENABLED");
+        boolean on = enabled != null ? Boolean.parseBoolean(enabled) : System.getenv("AWS_LAMBDA_FUNCTION_NAME") != null;
+        return on ? System.out::println : null;
+    }
+
+    /**
+     * Sends every EMF log event to the given sink from now on, or turns metrics off when null.
+     * Lambda ships stdout to CloudWatch Logs, which is where the default sink writes.
+     */
+    public static void setSink(Consumer<String> newSink) {
+        sink = newSink;
+    }
+
+    /**
+     * Opens the metrics of one invocation and makes them current on this thread. The first
+     * invocation in the process is flagged as a cold start.
+     */
+    public static InvocationMetrics start(String operation, Context context) {
+        Consumer<String> out = sink;
+        if (out == null) {
+            return DISABLED;
+        }
+        InvocationMetrics metrics = new InvocationMetrics(operation, context.getAwsRequestId(), out);
+        metrics.count("ColdStart", COLD_START.getAndSet(false) ? 1 : 0);
+        CURRENT.set(metrics);
+        return metrics;
+    }
+
+    /**
+     * The metrics of the invocation running on this thread, or an instance that ignores
+     * everything when there is none.
+     */
+    public static InvocationMetrics current() {
+        InvocationMetrics metrics = CURRENT.get();
+        return metrics != null ? metrics : DISABLED;
+    }
+
+    public synchronized boolean isRecording() {
+        return out != null && !closed;
+    }
+
+    /**
+     * Records the milliseconds elapsed since startNanos, a System.nanoTime() reading.
+     */
+    public void recordLatency(String name, long startNanos) {
+        record(name, MILLISECONDS, false, Math.round((System.nanoTime() - startNanos) / 1_000.0) / 1_000.0);
+    }
+
+    /**
+     * Records one sample of a count that varies per call, such as the items in a page.
+     */
+    public void recordCount(String name, double value) {
+        record(name, COUNT, false, value);
+    }
+
+    /**
+     * Adds to a count that is reported once per invocation.
+     */
+    public void count(String name, double value) {
+        record(name, COUNT, true, value);
+    }
+
+    private synchronized void record(String name, String unit, boolean summed, double value) {
+        if (out == null || closed) {
+            return;
+        }
+        Metric metric = metrics.computeIfAbsent(name, key -> new Metric(unit, summed, new ArrayList<>()));
+        if (metric.summed() && !metric.values().isEmpty()) {
+            metric.values().set(0, metric.values().get(0) + value);
+        } else {
+            metric.values().add(value);
+        }
+    }
+
+    /**
+     * Records the invocation latency and writes everything recorded as EMF. Recording stops here;
+     * work that outlives the invocation is not counted.
+     */
+    @Override
+    public void close() {
+        if (out == null) {
+            return;
+        }
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+        recordLatency("Latency", startNanos);
+
+        List<String> events;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            events = toEmf(System.currentTimeMillis());
+        }
+        events.forEach(out);
+    }
+
+    /**
+     * One log event holds at most 100 metrics of at most 100 values each, so larger invocations
+     * are spread over several events that share the same dimensions and properties.
+     */
+    private List<String> toEmf(long timestamp) {
+        List<String> events = new ArrayList<>();
+        for (int offset = 0; ; offset += MAX_VALUES_PER_METRIC) {
+            Map<String, List<Double>> round = new LinkedHashMap<>();
+            for (Map.Entry<String, Metric> metric : metrics.entrySet()) {
+                List<Double> values = metric.getValue().values();
+                if (values.size() > offset) {
+                    round.put(metric.getKey(), values.subList(offset, Math.min(offset + MAX_VALUES_PER_METRIC, values.size())));
+                }
+            }
+            if (round.isEmpty()) {
+                return events;
+            }
+
+            List<String> names = new ArrayList<>(round.keySet());
+            for (int start = 0; start < names.size(); start += MAX_METRICS_PER_EVENT) {
+                List<String> eventNames = names.subList(start, Math.min(start + MAX_METRICS_PER_EVENT, names.size()));
+                events.add(toEvent(timestamp, eventNames, round));
+            }
+        }
+    }
+
+    private String toEvent(long timestamp, List<String> names, Map<String, List<Double>> values) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator json = JSON.createGenerator(writer)) {
+            json.writeStartObject();
+            json.writeObjectFieldStart("_aws");
+            json.writeNumberField("Timestamp", timestamp);
+            json.writeArrayFieldStart("CloudWatchMetrics");
+            json.writeStartObject();
+            json.writeStringField("Namespace", NAMESPACE);
+            json.writeArrayFieldStart("Dimensions");
+            json.writeStartArray();
+            json.writeString("Operation");
+            json.writeEndArray();
+            json.writeEndArray();
+            json.writeArrayFieldStart("Metrics");
+            for (String name : names) {
+                json.writeStartObject();
+                json.writeStringField("Name", name);
+                json.writeStringField("Unit", metrics.get(name).unit());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeEndObject();
+
+            json.writeStringField("Operation", operation);
+            json.writeStringField("RequestId", requestId);
+            for (String name : names) {
+                List<Double> samples = values.get(name);
+                if (samples.size() == 1) {
+                    json.writeNumberField(name, samples.get(0));
+                } else {
+                    json.writeArrayFieldStart(name);
+                    for (double sample : samples) {
+                        json.writeNumber(sample);
+                    }
+                    json.writeEndArray();
+                }
+            }
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package com.amalitech.todo.metrics;
+
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.List;
+
+/**
+ * Records every AWS SDK call made during an invocation into its {@link InvocationMetrics}:
+ * latency (retries included), calls and errors per service operation and, for DynamoDB, the
+ * consumed capacity per table. ReturnConsumedCapacity is added to DynamoDB requests that do not
+ * ask for it, which also covers requests built by the enhanced client.
+ * Calls made outside an invocation are left untouched.
+ */
+public final class MetricsInterceptor implements ExecutionInterceptor {
+
+    public static final MetricsInterceptor INSTANCE = new MetricsInterceptor();
+
+    private static final ExecutionAttribute<InvocationMetrics> METRICS = new ExecutionAttribute<>("InvocationMetrics");
+    private static final ExecutionAttribute<Long> START_NANOS = new ExecutionAttribute<>("InvocationMetricsStartNanos");
+
+    private MetricsInterceptor() {
+    }
+
+    /**
+     * Runs on the calling thread, which is where the current invocation is known, even for the
+     * async clients whose later stages run on SDK threads.
+     */
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        InvocationMetrics metrics = InvocationMetrics.current();
+        if (metrics.isRecording()) {
+            executionAttributes.putAttribute(METRICS, metrics);
+            executionAttributes.putAttribute(START_NANOS, System.nanoTime());
+        }
+    }
+
+    @Override
+    public SdkRequest modifyRequest(Context.ModifyRequest context, ExecutionAttributes executionAttributes) {
+        if (executionAttributes.getAttribute(METRICS) == null) {
+            return context.request();
+        }
+        return withConsumedCapacity(context.request());
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        InvocationMetrics metrics = executionAttributes.getAttribute(METRICS);
+        if (metrics == null) {
+            return;
+        }
+        String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+        String prefix = executionAttributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME) + "." + operation;
+        metrics.recordLatency(prefix + ".Latency", executionAttributes.getAttribute(START_NANOS));
+        metrics.count(prefix + ".Calls", 1);
+        for (ConsumedCapacity capacity : consumedCapacity(context.response())) {
+            if (capacity.capacityUnits() != null) {
+                metrics.count("DynamoDb." + capacity.tableName() + "." + operation + ".ConsumedCapacity", capacity.capacityUnits());
+            }
+        }
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        InvocationMetrics metrics = executionAttributes.getAttribute(METRICS);
+        if (metrics == null) {
+            return;
+        }
+        String prefix = executionAttributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME) + "."
+                + executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+        metrics.recordLatency(prefix + ".Latency", executionAttributes.getAttribute(START_NANOS));
+        metrics.count(prefix + ".Calls", 1);
+        metrics.count(prefix + ".Errors", 1);
+    }
+
+    private static SdkRequest withConsumedCapacity(SdkRequest request) {
+        return switch (request) {
+            case GetItemRequest r when r.returnConsumedCapacity() == null ->
+                    r.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+            case PutItemRequest r when r.returnConsumedCapacity() == null ->
+                    r.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+            case UpdateItemRequest r when r.returnConsumedCapacity() == null ->
+                    r.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+            case DeleteItemRequest r when r.returnConsumedCapacity() == null ->
+                    r.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+            case QueryRequest r when r.returnConsumedCapacity() == null ->
+                    r.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+            case ScanRequest r when r.returnConsumedCapacity() == null ->
+                    r.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+            case BatchGetItemRequest r when r.returnConsumedCapacity() == null ->
+                    r.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+            case BatchWriteItemRequest r when r.returnConsumedCapacity() == null ->
+                    r.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+            case TransactWriteItemsRequest r when r.returnConsumedCapacity() == null ->
+                    r.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+            default -> request;
+        };
+    }
+
+    private static List<ConsumedCapacity> consumedCapacity(SdkResponse response) {
+        return switch (response) {
+            case GetItemResponse r -> listOf(r.consumedCapacity());
+            case PutItemResponse r -> listOf(r.consumedCapacity());
+            case UpdateItemResponse r -> listOf(r.consumedCapacity());
+            case DeleteItemResponse r -> listOf(r.consumedCapacity());
+            case QueryResponse r -> listOf(r.consumedCapacity());
+            case ScanResponse r -> listOf(r.consumedCapacity());
+            case BatchGetItemResponse r -> r.consumedCapacity();
+            case BatchWriteItemResponse r -> r.consumedCapacity();
+            case TransactWriteItemsResponse r -> r.consumedCapacity();
+            default -> List.of();
+        };
+    }
+
+    private static List<ConsumedCapacity> listOf(ConsumedCapacity capacity) {
+        return capacity != null ? List.of(capacity) : List.of();
+    }
+}
@@ -1,7 +1,13 @@
 package com.amalitech.todo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbAttribute;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbConvertedBy;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbIgnore;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondaryPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondarySortKey;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSortKey;
 
 /**
@@ -9,13 +15,18 @@ import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSortK
  */
 @DynamoDbBean
 public class Task {
+    public static final String STATUS_OPEN = "open";
+    public static final String STATUS_COMPLETED = "completed";
+
     private String userId;
     private String taskId;
     private String title;
-    private String description;
+    private TaskDescription description;
     private boolean completed;
     private long deadline;
     private long createdAt;
+    private Long deadlineBucket;
+    private long version;
 
     @DynamoDbPartitionKey
     public String getUserId() {
@@ -43,11 +54,27 @@ public class Task {
         this.title = title;
     }
 
+    @DynamoDbIgnore
     public String getDescription() {
-        return description;
+        return description != null ? description.text() : null;
     }
 
     public void setDescription(String description) {
+        this.description = TaskDescription.of(description);
+    }
+
+    /**
+     * The description as stored in the description attribute, compressed when it is long.
+     * Copying a task through this pair keeps the stored form, so nothing is inflated or recompressed.
+     */
+    @JsonIgnore
+    @DynamoDbAttribute("description")
+    @DynamoDbConvertedBy(TaskDescriptionConverter.class)
+    public TaskDescription getStoredDescription() {
+        return description;
+    }
+
+    public void setStoredDescription(TaskDescription description) {
         this.description = description;
     }
 
@@ -59,6 +86,7 @@ public class Task {
         this.completed = completed;
     }
 
+    @DynamoDbSecondarySortKey(indexNames = {"DeadlineBucketIndex", "UserStatusDeadlineIndex"})
     public long getDeadline() {
         return deadline;
     }
@@ -74,4 +102,47 @@ public class Task {
     public void setCreatedAt(long createdAt) {
         this.createdAt = createdAt;
     }
+
+    /**
+     * Incremented on every update; clients send it back to make their write conditional.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Minute bucket of the deadline while the task is open and not yet due; null otherwise.
+     * Internal to the expiry sweeper, so it is not part of the API representation.
+     */
+    @JsonIgnore
+    @DynamoDbSecondaryPartitionKey(indexNames = "DeadlineBucketIndex")
+    public Long getDeadlineBucket() {
+        return deadlineBucket;
+    }
+
+    public void setDeadlineBucket(Long deadlineBucket) {
+        this.deadlineBucket = deadlineBucket;
+    }
+
+    /**
+     * The user's tasks in one completion state, as "userId#open" or "userId#completed": the partition
+     * key of UserStatusDeadlineIndex. Derived from userId and completed, so every put writes it;
+     * the setter only exists for the table schema and ignores what is read back.
+     */
+    @JsonIgnore
+    @DynamoDbSecondaryPartitionKey(indexNames = "UserStatusDeadlineIndex")
+    public String getUserStatus() {
+        return userId != null ? userStatusOf(userId, completed) : null;
+    }
+
+    public void setUserStatus(String userStatus) {
+    }
+
+    public static String userStatusOf(String userId, boolean completed) {
+        return userId + "#" + (completed ? STATUS_COMPLETED : STATUS_OPEN);
+    }
 }
@@ -0,0 +1,36 @@
+package com.amalitech.todo.model;
+
+import software.amazon.awssdk.enhanced.dynamodb.AttributeConverter;
+import software.amazon.awssdk.enhanced.dynamodb.AttributeValueType;
+import software.amazon.awssdk.enhanced.dynamodb.EnhancedType;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Maps the description attribute to a {@link TaskDescription}, which decides between the plain
+ * string and the compressed binary form.
+ */
+public class TaskDescriptionConverter implements AttributeConverter<TaskDescription> {
+
+    @Override
+    public AttributeValue transformFrom(TaskDescription input) {
+        return input.toAttributeValue();
+    }
+
+    @Override
+    public TaskDescription transformTo(AttributeValue input) {
+        return TaskDescription.fromAttributeValue(input);
+    }
+
+    @Override
+    public EnhancedType<TaskDescription> type() {
+        return EnhancedType.of(TaskDescription.class);
+    }
+
+    /**
+     * Most descriptions are short and stay strings; the compressed form is binary.
+     */
+    @Override
+    public AttributeValueType attributeValueType() {
+        return AttributeValueType.S;
+    }
+}
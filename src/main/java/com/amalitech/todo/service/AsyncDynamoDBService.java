@@ -0,0 +1,145 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.dto.request.ListTasksRequest;
+import com.amalitech.todo.dto.request.UpdateTaskRequest;
+import com.amalitech.todo.dto.response.TaskPageResponse;
+import com.amalitech.todo.model.Task;
+import com.amalitech.todo.model.TaskTableSchema;
+
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.ReadBatch;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Non-blocking counterpart of DynamoDBService. Every method returns immediately with a future, so
+ * callers can overlap independent reads and writes within one invocation.
+ */
+public class AsyncDynamoDBService {
+
+    private final DynamoDbAsyncClient ddb;
+    private final TableSchema<Task> tableSchema;
+    private final DynamoDbEnhancedAsyncClient enhancedClient;
+    private final DynamoDbAsyncTable<Task> tasksTable;
+
+    public AsyncDynamoDBService(DynamoDbAsyncClient ddb) {
+        this.ddb = ddb;
+
+        this.enhancedClient = DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(ddb)
+                .build();
+
+        this.tableSchema = TaskTableSchema.INSTANCE;
+        this.tasksTable = enhancedClient.table(TaskTableRequests.TABLE_NAME, tableSchema);
+    }
+
+    public CompletableFuture<Void> saveTask(Task task) {
+        return tasksTable.putItem(task);
+    }
+
+    public CompletableFuture<TaskPageResponse> getTasksForUser(String userId, ListTasksRequest request) {
+        AtomicReference<Page<Task>> firstPage = new AtomicReference<>();
+        QueryEnhancedRequest query = TaskTableRequests.listQuery(userId, request);
+        String index = TaskTableRequests.listIndex(request);
+        SdkPublisher<Page<Task>> pages = index != null ? tasksTable.index(index).query(query) : tasksTable.query(query);
+        return pages
+                .limit(1)
+                .subscribe(firstPage::set)
+                .thenApply(ignored -> new TaskPageResponse(
+                        firstPage.get().items(), TaskCursorCodec.encode(firstPage.get().lastEvaluatedKey())));
+    }
+
+    public CompletableFuture<Task> getTask(String userId, String taskId) {
+        return tasksTable.getItem(Key.builder().partitionValue(userId).sortValue(taskId).build());
+    }
+
+    /**
+     * Reads up to TaskRepository.MAX_BATCH_GET_KEYS tasks in one BatchGetItem, re-requesting
+     * unprocessed keys. Missing tasks are omitted.
+     */
+    public CompletableFuture<List<Task>> getTasks(List<Task> keys) {
+        if (keys.size() > TaskRepository.MAX_BATCH_GET_KEYS) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    "At most " + TaskRepository.MAX_BATCH_GET_KEYS + " keys per batch"));
+        }
+        if (keys.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+
+        ReadBatch.Builder<Task> readBatch = ReadBatch.builder(Task.class).mappedTableResource(tasksTable);
+        keys.forEach(key -> readBatch.addGetItem(
+                Key.builder().partitionValue(key.getUserId()).sortValue(key.getTaskId()).build()));
+
+        List<Task> tasks = new ArrayList<>(keys.size());
+        return enhancedClient.batchGetItem(BatchGetItemEnhancedRequest.builder().readBatches(readBatch.build()).build())
+                .resultsForTable(tasksTable)
+                .subscribe(tasks::add)
+                .thenApply(ignored -> tasks);
+    }
+
+    /**
+     * Completes with the updated task, or null if it does not exist.
+     */
+    public CompletableFuture<Task> updateTask(String userId, String taskId, UpdateTaskRequest request, long now) {
+        return ddb.updateItem(TaskTableRequests.update(userId, taskId, request, now))
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return tableSchema.mapToItem(response.attributes());
+                    }
+                    throwIfNotMissing(error, taskId, request.version());
+                    return null;
+                });
+    }
+
+    public CompletableFuture<Void> setDeadlineBucket(String userId, String taskId, Long bucket, long version) {
+        return ddb.updateItem(TaskTableRequests.setDeadlineBucket(userId, taskId, bucket, version))
+                .handle((response, error) -> {
+                    if (error != null && !(unwrap(error) instanceof ConditionalCheckFailedException)) {
+                        throw new CompletionException(unwrap(error));
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Completes with the deleted task, or null if it did not exist.
+     */
+    public CompletableFuture<Task> deleteTask(String userId, String taskId, Long expectedVersion) {
+        return ddb.deleteItem(TaskTableRequests.delete(userId, taskId, expectedVersion))
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return tableSchema.mapToItem(response.attributes());
+                    }
+                    throwIfNotMissing(error, taskId, expectedVersion);
+                    return null;
+                });
+    }
+
+    /**
+     * Rethrows anything but a failed existence check, which the callers report as a missing task.
+     */
+    private static void throwIfNotMissing(Throwable error, String taskId, Long expectedVersion) {
+        Throwable cause = unwrap(error);
+        if (!(cause instanceof ConditionalCheckFailedException conditionFailure)) {
+            throw new CompletionException(cause);
+        }
+        TaskTableRequests.throwIfConflict(conditionFailure, taskId, expectedVersion);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
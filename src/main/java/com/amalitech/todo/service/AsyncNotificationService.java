@@ -0,0 +1,97 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.model.Task;
+
+import software.amazon.awssdk.services.sns.SnsAsyncClient;
+import software.amazon.awssdk.services.sns.model.InvalidParameterException;
+import software.amazon.awssdk.services.sns.model.PublishRequest;
+import software.amazon.awssdk.services.sns.model.SetSubscriptionAttributesRequest;
+import software.amazon.awssdk.services.sns.model.SubscribeRequest;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of NotificationService.
+ */
+public class AsyncNotificationService {
+    private final Supplier<SnsAsyncClient> snsClient;
+    private final Supplier<SqsAsyncClient> sqsClient;
+    private final String snsTopicArn = System.getenv("SNS_TOPIC_ARN");
+    private final String sqsQueueUrl = System.getenv("SQS_QUEUE_URL");
+    private final ObjectMapper objectMapper = ServiceRegistry.objectMapper();
+
+    public AsyncNotificationService() {
+        this(ServiceRegistry::snsAsyncClient, ServiceRegistry::sqsAsyncClient);
+    }
+
+    public AsyncNotificationService(Supplier<SnsAsyncClient> snsClient, Supplier<SqsAsyncClient> sqsClient) {
+        this.snsClient = snsClient;
+        this.sqsClient = sqsClient;
+    }
+
+    /**
+     * See NotificationService.subscribeUserToNotifications, including how a subscription made
+     * before filter policies gets one.
+     */
+    public CompletableFuture<Void> subscribeUserToNotifications(String email, String userId) {
+        String filterPolicy = ExpiryDigests.filterPolicy(userId);
+        return snsClient.get().subscribe(subscribeRequest(email, Map.of("FilterPolicy", filterPolicy)))
+                .<Void>thenApply(response -> null)
+                .exceptionallyCompose(e -> {
+                    if (!(e instanceof CompletionException && e.getCause() instanceof InvalidParameterException)) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                    return snsClient.get().subscribe(subscribeRequest(email, Map.of()))
+                            .thenCompose(response -> snsClient.get().setSubscriptionAttributes(SetSubscriptionAttributesRequest.builder()
+                                    .subscriptionArn(response.subscriptionArn())
+                                    .attributeName("FilterPolicy")
+                                    .attributeValue(filterPolicy)
+                                    .build()))
+                            .thenApply(response -> null);
+                });
+    }
+
+    private SubscribeRequest subscribeRequest(String email, Map<String, String> attributes) {
+        return SubscribeRequest.builder()
+                .protocol("email")
+                .endpoint(email)
+                .topicArn(snsTopicArn)
+                .attributes(attributes)
+                .returnSubscriptionArn(true)
+                .build();
+    }
+
+    public CompletableFuture<Void> sendTaskExpiryNotification(Task task) {
+        PublishRequest request = PublishRequest.builder()
+                .topicArn(snsTopicArn)
+                .subject(ExpiryDigests.subject(List.of(task)))
+                .message(ExpiryDigests.message(List.of(task)))
+                .messageAttributes(ExpiryDigests.attributes(task.getUserId(), 1))
+                .build();
+        return snsClient.get().publish(request).thenApply(response -> null);
+    }
+
+    public CompletableFuture<Void> scheduleTaskForExpiryCheck(Task task) {
+        String messageBody;
+        try {
+            messageBody = objectMapper.writeValueAsString(task);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        SendMessageRequest request = SendMessageRequest.builder()
+                .queueUrl(sqsQueueUrl)
+                .messageBody(messageBody)
+                .messageGroupId(task.getUserId())
+                .messageDeduplicationId(ExpiryDigests.deduplicationId(task))
+                .build();
+        return sqsClient.get().sendMessage(request).thenApply(response -> null);
+    }
+}
@@ -0,0 +1,61 @@
+package com.amalitech.todo.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket over DynamoDB capacity units, shared by the segments of a parallel scan. It
+ * refills at unitsPerSecond and holds at most one second's worth, so a scan never bursts above
+ * that. The cost of a page is only known once it has been read: callers reserve an estimate up
+ * front and settle the difference with the consumed capacity DynamoDB reports. Reservations may
+ * take the balance negative; each caller then sleeps until the refill has paid its share back,
+ * which queues concurrent callers fairly instead of letting them spin.
+ */
+public final class CapacityLimiter {
+
+    private final double unitsPerSecond;
+    private double available;
+    private long refilledAt = System.nanoTime();
+
+    public CapacityLimiter(double unitsPerSecond) {
+        if (!(unitsPerSecond > 0)) {
+            throw new IllegalArgumentException("unitsPerSecond must be positive");
+        }
+        this.unitsPerSecond = unitsPerSecond;
+        this.available = unitsPerSecond;
+    }
+
+    /**
+     * Reserves units, sleeping until the bucket has refilled enough to cover them.
+     */
+    public void acquire(double units) {
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            available -= units;
+            waitNanos = available >= 0 ? 0 : (long) (-available / unitsPerSecond * 1e9);
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for capacity", e);
+            }
+        }
+    }
+
+    /**
+     * Settles a reservation once the actual cost is known: a call that cost more than was
+     * reserved draws on later calls, one that cost less gives the rest back.
+     */
+    public synchronized void settle(double reserved, double consumed) {
+        refill();
+        available = Math.min(unitsPerSecond, available + reserved - consumed);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(unitsPerSecond, available + (now - refilledAt) / 1e9 * unitsPerSecond);
+        refilledAt = now;
+    }
+}
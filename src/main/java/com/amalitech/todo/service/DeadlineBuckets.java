@@ -0,0 +1,27 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.model.Task;
+
+/**
+ * Maps task deadlines (epoch milliseconds) to the minute buckets used as the partition key of
+ * DeadlineBucketIndex. Only open tasks whose deadline is still ahead carry a bucket, which keeps
+ * the index sparse: the sweeper removes the bucket once it has notified for the task.
+ */
+public final class DeadlineBuckets {
+
+    public static final long BUCKET_MILLIS = 60_000L;
+
+    private DeadlineBuckets() {
+    }
+
+    public static long bucketOf(long deadline) {
+        return Math.floorDiv(deadline, BUCKET_MILLIS);
+    }
+
+    public static Long bucketFor(Task task, long now) {
+        if (task.isCompleted() || task.getDeadline() <= now) {
+            return null;
+        }
+        return bucketOf(task.getDeadline());
+    }
+}
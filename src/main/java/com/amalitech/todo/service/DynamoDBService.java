@@ -1,54 +1,348 @@
 package com.amalitech.todo.service;
 
+import com.amalitech.todo.dto.request.ListTasksRequest;
+import com.amalitech.todo.dto.request.UpdateTaskRequest;
+import com.amalitech.todo.dto.response.TaskPageResponse;
 import com.amalitech.todo.model.Task;
+import com.amalitech.todo.model.TaskTableSchema;
 
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.Key;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetResultPage;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
 import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
-import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.ReadBatch;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
-public class DynamoDBService {
+public class DynamoDBService implements TaskRepository {
 
+    private static final String TABLE_NAME = TaskTableRequests.TABLE_NAME;
+    private static final String DEADLINE_BUCKET_INDEX = "DeadlineBucketIndex";
+    private static final int MAX_BATCH_ATTEMPTS = 5;
+    private static final long BATCH_BACKOFF_MILLIS = 50;
+
+    private final DynamoDbClient ddb;
+    private final TableSchema<Task> tableSchema;
+    private final DynamoDbEnhancedClient enhancedClient;
     private final DynamoDbTable<Task> tasksTable;
 
-    public DynamoDBService() {
-        DynamoDbClient ddb = DynamoDbClient.builder()
-                .region(Region.EU_CENTRAL_1)
-                .build();
+    public DynamoDBService(DynamoDbClient ddb) {
+        this.ddb = ddb;
 
-        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder()
+        this.enhancedClient = DynamoDbEnhancedClient.builder()
                 .dynamoDbClient(ddb)
                 .build();
 
-        this.tasksTable = enhancedClient.table("TaskTable",
-                TableSchema.fromBean(Task.class));
+        this.tableSchema = TaskTableSchema.INSTANCE;
+        this.tasksTable = enhancedClient.table(TABLE_NAME, tableSchema);
     }
 
+    @Override
     public void saveTask(Task task) {
         tasksTable.putItem(task);
     }
 
-    public List<Task> getTasksForUser(String userId) {
-        QueryConditional queryConditional = QueryConditional.keyEqualTo(Key.builder().partitionValue(userId).build());
-        return tasksTable.query(queryConditional).items().stream().toList();
+    /**
+     * Reads a single page of the user's tasks, from UserStatusDeadlineIndex when the request has a status.
+     */
+    @Override
+    public TaskPageResponse getTasksForUser(String userId, ListTasksRequest request) {
+        QueryEnhancedRequest query = TaskTableRequests.listQuery(userId, request);
+        String index = TaskTableRequests.listIndex(request);
+        Page<Task> page = (index != null ? tasksTable.index(index).query(query) : tasksTable.query(query)).iterator().next();
+        return new TaskPageResponse(page.items(), TaskCursorCodec.encode(page.lastEvaluatedKey()));
+    }
+
+    /**
+     * Queries the user's whole partition, every page, projecting the attributes TaskSummary counts.
+     */
+    @Override
+    public List<Task> getTaskStatesForUser(String userId) {
+        QueryEnhancedRequest query = QueryEnhancedRequest.builder()
+                .queryConditional(QueryConditional.keyEqualTo(Key.builder().partitionValue(userId).build()))
+                .consistentRead(true)
+                .attributesToProject("userId", "taskId", "completed", "deadline")
+                .build();
+        return tasksTable.query(query).items().stream().toList();
     }
 
+    @Override
     public Task getTask(String userId, String taskId) {
         Key key = Key.builder().partitionValue(userId).sortValue(taskId).build();
         return tasksTable.getItem(key);
     }
 
-    public void updateTask(Task task) {
-        tasksTable.updateItem(task);
+    /**
+     * Reads up to MAX_BATCH_GET_KEYS tasks in one BatchGetItem, omitting missing ones. Throws if
+     * keys are still unprocessed after the last retry.
+     */
+    @Override
+    public List<Task> getTasks(List<Task> keys) {
+        checkBatchSize(keys.size(), MAX_BATCH_GET_KEYS);
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+
+        ReadBatch.Builder<Task> readBatch = ReadBatch.builder(Task.class).mappedTableResource(tasksTable);
+        keys.forEach(key -> readBatch.addGetItem(
+                Key.builder().partitionValue(key.getUserId()).sortValue(key.getTaskId()).build()));
+
+        List<Task> tasks = new ArrayList<>(keys.size());
+        Iterator<BatchGetResultPage> pages = enhancedClient
+                .batchGetItem(BatchGetItemEnhancedRequest.builder().readBatches(readBatch.build()).build())
+                .iterator();
+        for (int attempt = 0; pages.hasNext(); attempt++) {
+            BatchGetResultPage page = pages.next();
+            tasks.addAll(page.resultsForTable(tasksTable));
+            if (page.unprocessedKeysForTable(tasksTable).isEmpty()) {
+                break;
+            }
+            if (attempt + 1 == MAX_BATCH_ATTEMPTS) {
+                throw new IllegalStateException("Keys still unprocessed after " + MAX_BATCH_ATTEMPTS + " attempts");
+            }
+            backoff(attempt + 1);
+        }
+        return tasks;
     }
 
-    public void deleteTask(String userId, String taskId) {
-        Key key = Key.builder().partitionValue(userId).sortValue(taskId).build();
-        tasksTable.deleteItem(key);
+    /**
+     * Writes up to MAX_BATCH_WRITE_ITEMS tasks with BatchWriteItem, retrying unprocessed items
+     * with exponential backoff. Returns the tasks still unprocessed after the last attempt.
+     */
+    @Override
+    public List<Task> saveTasks(List<Task> tasks) {
+        checkBatchSize(tasks.size(), MAX_BATCH_WRITE_ITEMS);
+        List<Task> pending = tasks;
+        for (int attempt = 0; !pending.isEmpty() && attempt < MAX_BATCH_ATTEMPTS; attempt++) {
+            backoff(attempt);
+            WriteBatch.Builder<Task> writeBatch = WriteBatch.builder(Task.class).mappedTableResource(tasksTable);
+            pending.forEach(writeBatch::addPutItem);
+            pending = enhancedClient.batchWriteItem(BatchWriteItemEnhancedRequest.builder()
+                            .writeBatches(writeBatch.build())
+                            .build())
+                    .unprocessedPutItemsForTable(tasksTable);
+        }
+        return pending;
+    }
+
+    /**
+     * Deletes up to MAX_BATCH_WRITE_ITEMS of the user's tasks with BatchWriteItem. Returns the IDs
+     * still unprocessed after the last retry; missing tasks count as deleted.
+     */
+    @Override
+    public List<String> deleteTasks(String userId, List<String> taskIds) {
+        checkBatchSize(taskIds.size(), MAX_BATCH_WRITE_ITEMS);
+        List<Key> pending = taskIds.stream()
+                .map(taskId -> Key.builder().partitionValue(userId).sortValue(taskId).build())
+                .toList();
+        for (int attempt = 0; !pending.isEmpty() && attempt < MAX_BATCH_ATTEMPTS; attempt++) {
+            backoff(attempt);
+            WriteBatch.Builder<Task> writeBatch = WriteBatch.builder(Task.class).mappedTableResource(tasksTable);
+            pending.forEach(writeBatch::addDeleteItem);
+            pending = enhancedClient.batchWriteItem(BatchWriteItemEnhancedRequest.builder()
+                            .writeBatches(writeBatch.build())
+                            .build())
+                    .unprocessedDeleteItemsForTable(tasksTable);
+        }
+        return pending.stream()
+                .map(key -> key.sortKeyValue().orElseThrow().s())
+                .toList();
+    }
+
+    private static void checkBatchSize(int size, int max) {
+        if (size > max) {
+            throw new IllegalArgumentException("At most " + max + " items per batch");
+        }
+    }
+
+    /**
+     * Sleeps before a retry: nothing before the first attempt, then BATCH_BACKOFF_MILLIS doubling
+     * per attempt, with jitter so throttled callers do not retry in lockstep.
+     */
+    private static void backoff(int attempt) {
+        if (attempt == 0) {
+            return;
+        }
+        long delay = BATCH_BACKOFF_MILLIS << (attempt - 1);
+        try {
+            Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying batch", e);
+        }
+    }
+
+    /**
+     * Applies the non-null fields of the request in a single conditional UpdateItem and bumps the
+     * version. Returns the updated task, or null if it does not exist.
+     */
+    @Override
+    public Task updateTask(String userId, String taskId, UpdateTaskRequest request, long now) {
+        try {
+            UpdateItemRequest updateRequest = TaskTableRequests.update(userId, taskId, request, now);
+            return tableSchema.mapToItem(ddb.updateItem(updateRequest).attributes());
+        } catch (ConditionalCheckFailedException e) {
+            TaskTableRequests.throwIfConflict(e, taskId, request.version());
+            return null;
+        }
+    }
+
+    /**
+     * Sets or removes the deadline bucket of a task, provided it is still at the given version.
+     */
+    @Override
+    public void setDeadlineBucket(String userId, String taskId, Long bucket, long version) {
+        try {
+            ddb.updateItem(TaskTableRequests.setDeadlineBucket(userId, taskId, bucket, version));
+        } catch (ConditionalCheckFailedException e) {
+            // A newer write has already derived its own bucket.
+        }
     }
+
+    /**
+     * Deletes a task in a single conditional DeleteItem. Returns the deleted task, or null if it
+     * did not exist. When expectedVersion is set, the delete only applies at that version.
+     */
+    @Override
+    public Task deleteTask(String userId, String taskId, Long expectedVersion) {
+        try {
+            DeleteItemResponse response = ddb.deleteItem(TaskTableRequests.delete(userId, taskId, expectedVersion));
+            return tableSchema.mapToItem(response.attributes());
+        } catch (ConditionalCheckFailedException e) {
+            TaskTableRequests.throwIfConflict(e, taskId, expectedVersion);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the keys of tasks in the given deadline bucket whose deadline is at or before now.
+     */
+    @Override
+    public List<Task> getTasksDueInBucket(long bucket, long now) {
+        QueryConditional queryConditional = QueryConditional.sortLessThanOrEqualTo(
+                Key.builder().partitionValue(bucket).sortValue(now).build());
+        return tasksTable.index(DEADLINE_BUCKET_INDEX).query(queryConditional).stream()
+                .flatMap(page -> page.items().stream())
+                .toList();
+    }
+
+    /**
+     * Atomically takes a due task out of its deadline bucket so only one sweep notifies for it.
+     * Returns the current task, or null if it was already claimed, completed or deleted.
+     */
+    @Override
+    public Task claimDueTask(String userId, String taskId, long bucket) {
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(TaskTableRequests.keyOf(userId, taskId))
+                .updateExpression("REMOVE deadlineBucket")
+                .conditionExpression("deadlineBucket = :bucket AND completed = :false")
+                .expressionAttributeValues(Map.of(
+                        ":bucket", AttributeValue.fromN(Long.toString(bucket)),
+                        ":false", AttributeValue.fromBool(false)))
+                .returnValues(ReturnValue.ALL_NEW)
+                .build();
+        try {
+            return tableSchema.mapToItem(ddb.updateItem(request).attributes());
+        } catch (ConditionalCheckFailedException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Puts a claimed task back into its bucket so a later sweep retries it.
+     */
+    @Override
+    public void restoreDeadlineBucket(String userId, String taskId, long bucket) {
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(TaskTableRequests.keyOf(userId, taskId))
+                .updateExpression("SET deadlineBucket = :bucket")
+                .conditionExpression("attribute_exists(taskId) AND completed = :false")
+                .expressionAttributeValues(Map.of(
+                        ":bucket", AttributeValue.fromN(Long.toString(bucket)),
+                        ":false", AttributeValue.fromBool(false)))
+                .build();
+        try {
+            ddb.updateItem(request);
+        } catch (ConditionalCheckFailedException e) {
+            // Completed or deleted in the meantime, nothing left to retry.
+        }
+    }
+
+    /**
+     * Takes a completed task out of its deadline bucket, if it is still in one.
+     */
+    @Override
+    public void clearDeadlineBucket(String userId, String taskId) {
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(TaskTableRequests.keyOf(userId, taskId))
+                .updateExpression("REMOVE deadlineBucket")
+                .conditionExpression("attribute_exists(deadlineBucket) AND completed = :true")
+                .expressionAttributeValues(Map.of(":true", AttributeValue.fromBool(true)))
+                .build();
+        try {
+            ddb.updateItem(request);
+        } catch (ConditionalCheckFailedException e) {
+            // Already out of the index, or reopened since the stream record was written.
+        }
+    }
+
+    /**
+     * Reads one page of one segment of a parallel Scan, resuming after exclusiveStartKey (null for
+     * the start of the segment).
+     */
+    public ScanPage scanSegment(int segment, int totalSegments, Map<String, AttributeValue> exclusiveStartKey, int limit) {
+        ScanResponse response = ddb.scan(ScanRequest.builder()
+                .tableName(TABLE_NAME)
+                .segment(segment)
+                .totalSegments(totalSegments)
+                .exclusiveStartKey(exclusiveStartKey)
+                .limit(limit)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build());
+        return new ScanPage(
+                response.items(),
+                response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty() ? response.lastEvaluatedKey() : null,
+                response.consumedCapacity() != null ? response.consumedCapacity().capacityUnits() : 0);
+    }
+
+    /**
+     * Writes the derived attributes a stored item is missing. Returns false when there was nothing
+     * to write or the task changed since it was read.
+     */
+    public boolean migrateTask(Map<String, AttributeValue> item, long now) {
+        UpdateItemRequest request = TaskTableRequests.migrate(item, now);
+        if (request == null) {
+            return false;
+        }
+        try {
+            ddb.updateItem(request);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
 }
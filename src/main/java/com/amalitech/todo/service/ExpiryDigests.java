@@ -0,0 +1,127 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.model.Task;
+
+import software.amazon.awssdk.services.sns.model.MessageAttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the expiry notification a user receives for their due tasks, shared by NotificationService
+ * and AsyncNotificationService. A single task reads as before; several tasks become one digest.
+ * Every message carries the userId attribute that subscription filter policies match on.
+ */
+final class ExpiryDigests {
+
+    static final String USER_ID_ATTRIBUTE = "userId";
+    static final String TASK_COUNT_ATTRIBUTE = "taskCount";
+
+    // SNS takes subjects of fewer than 100 characters.
+    private static final int MAX_SUBJECT_LENGTH = 99;
+    private static final int MAX_LISTED_TASKS = 25;
+    // At up to 3 bytes per character, 25 listed tasks stay under 170 KB, well inside the 256 KB
+    // SNS message limit however long the stored titles and descriptions are.
+    private static final int MAX_TITLE_LENGTH = 200;
+    private static final int MAX_DESCRIPTION_LENGTH = 2_000;
+
+    private ExpiryDigests() {
+    }
+
+    /**
+     * SNS rejects subjects of 100 characters or more, so long titles are cut short.
+     */
+    static String subject(List<Task> tasks) {
+        String subject = tasks.size() == 1
+                ? "Task Deadline approaching: " + tasks.get(0).getTitle()
+                : tasks.size() + " tasks are due soon";
+        return shorten(subject, MAX_SUBJECT_LENGTH);
+    }
+
+    /**
+     * Lists up to MAX_LISTED_TASKS tasks, with titles and descriptions cut short, so a digest
+     * always fits in one SNS message.
+     */
+    static String message(List<Task> tasks) {
+        if (tasks.size() == 1) {
+            return String.format(
+                    "Your task '%s' is due soon!\n\nDescription: %s",
+                    shorten(tasks.get(0).getTitle(), MAX_TITLE_LENGTH),
+                    shorten(tasks.get(0).getDescription(), MAX_DESCRIPTION_LENGTH)
+            );
+        }
+
+        StringBuilder message = new StringBuilder("You have ").append(tasks.size()).append(" tasks due soon!\n");
+        for (Task task : tasks.subList(0, Math.min(tasks.size(), MAX_LISTED_TASKS))) {
+            message.append("\n- ").append(shorten(task.getTitle(), MAX_TITLE_LENGTH));
+            if (task.getDescription() != null && !task.getDescription().isEmpty()) {
+                message.append(": ").append(shorten(task.getDescription(), MAX_DESCRIPTION_LENGTH));
+            }
+        }
+        if (tasks.size() > MAX_LISTED_TASKS) {
+            message.append("\n\n...and ").append(tasks.size() - MAX_LISTED_TASKS).append(" more.");
+        }
+        return message.toString();
+    }
+
+    static Map<String, MessageAttributeValue> attributes(String userId, int taskCount) {
+        return Map.of(
+                USER_ID_ATTRIBUTE, MessageAttributeValue.builder()
+                        .dataType("String")
+                        .stringValue(userId)
+                        .build(),
+                TASK_COUNT_ATTRIBUTE, MessageAttributeValue.builder()
+                        .dataType("Number")
+                        .stringValue(Integer.toString(taskCount))
+                        .build());
+    }
+
+    /**
+     * Bytes a message counts against the PublishBatch payload limit: body, subject and attributes.
+     */
+    static int sizeOf(String subject, String message, Map<String, MessageAttributeValue> attributes) {
+        int size = utf8Length(subject) + utf8Length(message);
+        for (Map.Entry<String, MessageAttributeValue> attribute : attributes.entrySet()) {
+            size += utf8Length(attribute.getKey())
+                    + utf8Length(attribute.getValue().dataType())
+                    + utf8Length(attribute.getValue().stringValue());
+        }
+        return size;
+    }
+
+    /**
+     * Cuts text to at most maxLength characters, ending in "...", without splitting a surrogate pair.
+     */
+    private static String shorten(String text, int maxLength) {
+        if (text == null || text.length() <= maxLength) {
+            return text;
+        }
+        int end = maxLength - 3;
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end) + "...";
+    }
+
+    private static int utf8Length(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8).length : 0;
+    }
+
+    /**
+     * The FIFO deduplication ID of a task's expiry check: its taskId and version, which the stream
+     * record's new image carries. A redelivered stream record, or the same write queued from both
+     * the API and the stream, yields the same ID and is dropped by SQS within the five-minute
+     * deduplication window; a later write of the task has a new version and is queued again.
+     */
+    static String deduplicationId(Task task) {
+        return task.getTaskId() + "-" + task.getVersion();
+    }
+
+    /**
+     * The filter policy that delivers only the given user's notifications to a subscription.
+     */
+    static String filterPolicy(String userId) {
+        return "{\"" + USER_ID_ATTRIBUTE + "\":[\"" + userId.replace("\\", "\\\\").replace("\"", "\\\"") + "\"]}";
+    }
+}
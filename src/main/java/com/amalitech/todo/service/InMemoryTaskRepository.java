@@ -0,0 +1,386 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.dto.request.ListTasksRequest;
+import com.amalitech.todo.dto.request.UpdateTaskRequest;
+import com.amalitech.todo.dto.response.TaskPageResponse;
+import com.amalitech.todo.exception.TaskVersionConflictException;
+import com.amalitech.todo.model.Task;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * TaskRepository that keeps every user's tasks in a sorted map in process memory, for local runs
+ * and load tests without AWS. Users are spread over a fixed set of read-write lock stripes, so
+ * requests for different users rarely contend and reads of one user run in parallel.
+ * Every task goes in and comes out as a copy, like an item in a table. Conditional writes follow
+ * the DynamoDB engine, including version conflicts and the request-only deadline bucket derivation
+ * that TaskService corrects afterwards.
+ */
+public class InMemoryTaskRepository implements TaskRepository {
+
+    private static final int STRIPES = 64;
+    private static final Comparator<Task> BY_DEADLINE =
+            Comparator.comparingLong(Task::getDeadline).thenComparing(Task::getTaskId);
+
+    private final Map<String, NavigableMap<String, Task>> tasksByUser = new ConcurrentHashMap<>();
+    private final ReadWriteLock[] stripes = new ReadWriteLock[STRIPES];
+
+    public InMemoryTaskRepository() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Drops every stored task.
+     */
+    public void clear() {
+        tasksByUser.clear();
+    }
+
+    @Override
+    public void saveTask(Task task) {
+        Lock lock = writeLock(task.getUserId());
+        lock.lock();
+        try {
+            tasksOf(task.getUserId()).put(task.getTaskId(), copy(task));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lists like the DynamoDB engine: by taskId from the table, or by deadline then taskId from
+     * UserStatusDeadlineIndex when the request has a status, with index-shaped cursors. Without a
+     * status, tasks outside the deadline range still count towards the page limit, as a filter would.
+     */
+    @Override
+    public TaskPageResponse getTasksForUser(String userId, ListTasksRequest request) {
+        Map<String, AttributeValue> exclusiveStartKey = TaskTableRequests.exclusiveStartKey(userId, request);
+        Lock lock = readLock(userId);
+        lock.lock();
+        try {
+            NavigableMap<String, Task> tasks = tasksByUser.getOrDefault(userId, new TreeMap<>());
+            Iterator<Task> candidates;
+            if (request.status() != null) {
+                boolean completed = Task.STATUS_COMPLETED.equals(request.status());
+                candidates = tasks.values().stream()
+                        .filter(task -> task.isCompleted() == completed && inDeadlineRange(task, request))
+                        .filter(task -> exclusiveStartKey == null || BY_DEADLINE.compare(task, startOf(exclusiveStartKey)) > 0)
+                        .sorted(BY_DEADLINE)
+                        .iterator();
+            } else {
+                if (exclusiveStartKey != null) {
+                    tasks = tasks.tailMap(exclusiveStartKey.get("taskId").s(), false);
+                }
+                candidates = tasks.values().iterator();
+            }
+
+            List<Task> items = new ArrayList<>(Math.min(request.limit(), tasks.size()));
+            Task last = null;
+            for (int read = 0; read < request.limit() && candidates.hasNext(); read++) {
+                last = candidates.next();
+                if (inDeadlineRange(last, request)) {
+                    items.add(request.summaryOnly() ? summaryOf(last) : copy(last));
+                }
+            }
+
+            String nextCursor = null;
+            if (last != null && candidates.hasNext()) {
+                nextCursor = TaskCursorCodec.encode(cursorKeyOf(last, request));
+            }
+            return new TaskPageResponse(items, nextCursor);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean inDeadlineRange(Task task, ListTasksRequest request) {
+        return (request.dueAfter() == null || task.getDeadline() >= request.dueAfter())
+                && (request.dueBefore() == null || task.getDeadline() < request.dueBefore());
+    }
+
+    private static Task startOf(Map<String, AttributeValue> exclusiveStartKey) {
+        Task start = new Task();
+        start.setTaskId(exclusiveStartKey.get("taskId").s());
+        AttributeValue deadline = exclusiveStartKey.get("deadline");
+        if (deadline == null || deadline.n() == null) {
+            throw new IllegalArgumentException("Cursor does not belong to this list");
+        }
+        start.setDeadline(Long.parseLong(deadline.n()));
+        return start;
+    }
+
+    /**
+     * The lastEvaluatedKey DynamoDB returns: the table key, plus the index key for status lists.
+     */
+    private static Map<String, AttributeValue> cursorKeyOf(Task task, ListTasksRequest request) {
+        Map<String, AttributeValue> key = new LinkedHashMap<>(TaskTableRequests.keyOf(task.getUserId(), task.getTaskId()));
+        if (request.status() != null) {
+            key.put(TaskTableRequests.USER_STATUS, AttributeValue.fromS(task.getUserStatus()));
+            key.put("deadline", AttributeValue.fromN(Long.toString(task.getDeadline())));
+        }
+        return key;
+    }
+
+    @Override
+    public Task getTask(String userId, String taskId) {
+        Lock lock = readLock(userId);
+        lock.lock();
+        try {
+            Task task = tasksByUser.getOrDefault(userId, new TreeMap<>()).get(taskId);
+            return task != null ? copy(task) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getTaskStatesForUser(String userId) {
+        Lock lock = readLock(userId);
+        lock.lock();
+        try {
+            return tasksByUser.getOrDefault(userId, new TreeMap<>()).values().stream()
+                    .map(InMemoryTaskRepository::stateOf)
+                    .toList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Task stateOf(Task task) {
+        Task state = new Task();
+        state.setUserId(task.getUserId());
+        state.setTaskId(task.getTaskId());
+        state.setCompleted(task.isCompleted());
+        state.setDeadline(task.getDeadline());
+        return state;
+    }
+
+    @Override
+    public List<Task> getTasks(List<Task> keys) {
+        checkBatchSize(keys.size(), MAX_BATCH_GET_KEYS);
+        List<Task> tasks = new ArrayList<>(keys.size());
+        for (Task key : keys) {
+            Task task = getTask(key.getUserId(), key.getTaskId());
+            if (task != null) {
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
+    @Override
+    public List<Task> saveTasks(List<Task> tasks) {
+        checkBatchSize(tasks.size(), MAX_BATCH_WRITE_ITEMS);
+        tasks.forEach(this::saveTask);
+        return List.of();
+    }
+
+    @Override
+    public List<String> deleteTasks(String userId, List<String> taskIds) {
+        checkBatchSize(taskIds.size(), MAX_BATCH_WRITE_ITEMS);
+        Lock lock = writeLock(userId);
+        lock.lock();
+        try {
+            NavigableMap<String, Task> tasks = tasksOf(userId);
+            taskIds.forEach(tasks::remove);
+            return List.of();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Task updateTask(String userId, String taskId, UpdateTaskRequest request, long now) {
+        Lock lock = writeLock(userId);
+        lock.lock();
+        try {
+            Task task = tasksOf(userId).get(taskId);
+            if (task == null) {
+                return null;
+            }
+            checkVersion(task, taskId, request.version());
+
+            if (request.title() != null) {
+                task.setTitle(request.title());
+            }
+            if (request.description() != null) {
+                task.setDescription(request.description());
+            }
+            if (request.completed() != null) {
+                task.setCompleted(request.completed());
+            }
+            if (request.deadline() != null) {
+                task.setDeadline(request.deadline());
+            }
+            if (Boolean.TRUE.equals(request.completed())
+                    || (request.deadline() != null && request.deadline() <= now)) {
+                task.setDeadlineBucket(null);
+            } else if (request.deadline() != null) {
+                task.setDeadlineBucket(DeadlineBuckets.bucketOf(request.deadline()));
+            }
+            task.setVersion(task.getVersion() + 1);
+            return copy(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setDeadlineBucket(String userId, String taskId, Long bucket, long version) {
+        Lock lock = writeLock(userId);
+        lock.lock();
+        try {
+            Task task = tasksOf(userId).get(taskId);
+            if (task != null && task.getVersion() == version) {
+                task.setDeadlineBucket(bucket);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Task deleteTask(String userId, String taskId, Long expectedVersion) {
+        Lock lock = writeLock(userId);
+        lock.lock();
+        try {
+            NavigableMap<String, Task> tasks = tasksOf(userId);
+            Task task = tasks.get(taskId);
+            if (task == null) {
+                return null;
+            }
+            checkVersion(task, taskId, expectedVersion);
+            return tasks.remove(taskId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * There is no deadline index in memory, so this scans every user. Fine for local runs, where
+     * the sweep is triggered by hand if at all.
+     */
+    @Override
+    public List<Task> getTasksDueInBucket(long bucket, long now) {
+        List<Task> due = new ArrayList<>();
+        for (String userId : tasksByUser.keySet()) {
+            Lock lock = readLock(userId);
+            lock.lock();
+            try {
+                for (Task task : tasksOf(userId).values()) {
+                    Long taskBucket = task.getDeadlineBucket();
+                    if (taskBucket != null && taskBucket == bucket && task.getDeadline() <= now) {
+                        due.add(copy(task));
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return due;
+    }
+
+    @Override
+    public Task claimDueTask(String userId, String taskId, long bucket) {
+        Lock lock = writeLock(userId);
+        lock.lock();
+        try {
+            Task task = tasksOf(userId).get(taskId);
+            if (task == null || task.isCompleted() || task.getDeadlineBucket() == null || task.getDeadlineBucket() != bucket) {
+                return null;
+            }
+            task.setDeadlineBucket(null);
+            return copy(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void restoreDeadlineBucket(String userId, String taskId, long bucket) {
+        Lock lock = writeLock(userId);
+        lock.lock();
+        try {
+            Task task = tasksOf(userId).get(taskId);
+            if (task != null && !task.isCompleted()) {
+                task.setDeadlineBucket(bucket);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clearDeadlineBucket(String userId, String taskId) {
+        Lock lock = writeLock(userId);
+        lock.lock();
+        try {
+            Task task = tasksOf(userId).get(taskId);
+            if (task != null && task.isCompleted()) {
+                task.setDeadlineBucket(null);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private NavigableMap<String, Task> tasksOf(String userId) {
+        return tasksByUser.computeIfAbsent(userId, id -> new TreeMap<>());
+    }
+
+    private Lock readLock(String userId) {
+        return stripes[Math.floorMod(userId.hashCode(), STRIPES)].readLock();
+    }
+
+    private Lock writeLock(String userId) {
+        return stripes[Math.floorMod(userId.hashCode(), STRIPES)].writeLock();
+    }
+
+    private static void checkVersion(Task task, String taskId, Long expectedVersion) {
+        if (expectedVersion != null && task.getVersion() != expectedVersion) {
+            throw new TaskVersionConflictException(taskId, expectedVersion);
+        }
+    }
+
+    private static void checkBatchSize(int size, int max) {
+        if (size > max) {
+            throw new IllegalArgumentException("At most " + max + " items per batch");
+        }
+    }
+
+    private static Task copy(Task task) {
+        Task copy = summaryOf(task);
+        copy.setStoredDescription(task.getStoredDescription());
+        copy.setDeadlineBucket(task.getDeadlineBucket());
+        return copy;
+    }
+
+    /**
+     * The same attributes the DynamoDB engine projects for the summary view.
+     */
+    private static Task summaryOf(Task task) {
+        Task summary = new Task();
+        summary.setUserId(task.getUserId());
+        summary.setTaskId(task.getTaskId());
+        summary.setTitle(task.getTitle());
+        summary.setCompleted(task.isCompleted());
+        summary.setDeadline(task.getDeadline());
+        summary.setCreatedAt(task.getCreatedAt());
+        summary.setVersion(task.getVersion());
+        return summary;
+    }
+}
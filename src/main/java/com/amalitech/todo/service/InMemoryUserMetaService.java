@@ -0,0 +1,134 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.model.Task;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * UserMetaService that holds list versions, subscriptions and task summaries in process memory,
+ * paired with InMemoryTaskRepository for local runs and load tests.
+ */
+public class InMemoryUserMetaService extends UserMetaService {
+
+    private final Map<String, Long> listVersions = new ConcurrentHashMap<>();
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, TaskSummary> summaries = new ConcurrentHashMap<>();
+    private final Set<String> appliedEvents = ConcurrentHashMap.newKeySet();
+    private final Function<String, List<Task>> taskStates;
+
+    public InMemoryUserMetaService() {
+        this(null);
+    }
+
+    /**
+     * With taskStates, a summary is counted from the user's tasks on every read, which stands in
+     * for the stream processor when nothing feeds the summaries.
+     */
+    public InMemoryUserMetaService(Function<String, List<Task>> taskStates) {
+        super(() -> {
+            throw new IllegalStateException("No DynamoDB client in memory mode");
+        }, () -> {
+            throw new IllegalStateException("No DynamoDB client in memory mode");
+        });
+        this.taskStates = taskStates;
+    }
+
+    @Override
+    public long getListVersion(String userId) {
+        return listVersions.getOrDefault(userId, 0L);
+    }
+
+    @Override
+    public long bumpListVersion(String userId) {
+        return listVersions.merge(userId, 1L, Long::sum);
+    }
+
+    @Override
+    public CompletableFuture<Long> bumpListVersionAsync(String userId) {
+        return CompletableFuture.completedFuture(bumpListVersion(userId));
+    }
+
+    @Override
+    public Subscription getSubscription(String userId) {
+        return subscriptions.get(userId);
+    }
+
+    @Override
+    public boolean queueSubscription(String userId, String email, long now, long queuedAfter, long pendingAfter) {
+        boolean[] queued = {false};
+        subscriptions.compute(userId, (id, subscription) -> {
+            if (subscription != null && subscription.email().equals(email)
+                    && !(SUBSCRIPTION_QUEUED.equals(subscription.status()) && subscription.updatedAt() < queuedAfter)
+                    && !(SUBSCRIPTION_PENDING.equals(subscription.status()) && subscription.updatedAt() < pendingAfter)) {
+                return subscription;
+            }
+            queued[0] = true;
+            return new Subscription(email, subscription != null ? subscription.arn() : null, SUBSCRIPTION_QUEUED, now);
+        });
+        return queued[0];
+    }
+
+    @Override
+    public boolean completeSubscription(String userId, String email, String arn, String status, long now) {
+        boolean[] completed = {false};
+        subscriptions.computeIfPresent(userId, (id, subscription) -> {
+            if (!subscription.email().equals(email)) {
+                return subscription;
+            }
+            completed[0] = true;
+            return new Subscription(email, arn, status, now);
+        });
+        return completed[0];
+    }
+
+    @Override
+    public TaskSummary getTaskSummary(String userId) {
+        if (taskStates != null) {
+            return TaskSummary.of(taskStates.apply(userId));
+        }
+        return summaries.getOrDefault(userId, TaskSummary.EMPTY);
+    }
+
+    /**
+     * No write time is kept in memory, so every user counts as quiet.
+     */
+    @Override
+    public SummaryState getSummaryState(String userId) {
+        return new SummaryState(getTaskSummary(userId), getListVersion(userId), 0L);
+    }
+
+    @Override
+    public void addToTaskSummary(String userId, List<TaskSummary.Change> changes) {
+        summaries.compute(userId, (id, summary) -> {
+            TaskSummary current = summary != null ? summary : TaskSummary.EMPTY;
+            Map<String, Long> delta = new HashMap<>();
+            for (TaskSummary.Change change : changes) {
+                if (appliedEvents.add(change.eventId())) {
+                    change.delta().forEach((attribute, count) -> delta.merge(attribute, count, Long::sum));
+                }
+            }
+            return current.movedOn(System.currentTimeMillis()).plus(delta);
+        });
+    }
+
+    @Override
+    public boolean replaceTaskSummary(String userId, SummaryState current, TaskSummary replacement) {
+        boolean[] replaced = {false};
+        summaries.compute(userId, (id, summary) -> {
+            long version = summary != null ? summary.version() : 0;
+            if (version != current.summary().version() || getListVersion(userId) != current.listVersion()) {
+                return summary;
+            }
+            replaced[0] = true;
+            return new TaskSummary(replacement.open(), replacement.completed(), replacement.openDueBeforeWindow(),
+                    replacement.openDueBySlot(), replacement.dueFrom(), replacement.dueUntil(), version + 1);
+        });
+        return replaced[0];
+    }
+}
@@ -0,0 +1,114 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.model.TaskDescription;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What a maintenance scan does with each page of TaskTable it reads. Actions must be safe to
+ * apply to the same page twice: a resumed scan repeats the page that was in flight when it
+ * stopped. Each returns how many items it affected; an exception fails the segment, which
+ * keeps its checkpoint at the page before.
+ */
+@FunctionalInterface
+public interface MaintenanceAction {
+
+    String MIGRATE = "migrate";
+    String RESCHEDULE = "reschedule";
+    String VERIFY = "verify";
+    String RECONCILE = "reconcile";
+
+    int apply(ScanPage page);
+
+    /**
+     * The action of the given name, wired to the shared services.
+     */
+    static MaintenanceAction named(String name) {
+        return switch (name) {
+            case MIGRATE -> migrate(ServiceRegistry.dynamoDBService());
+            case RESCHEDULE -> reschedule(ServiceRegistry.taskService());
+            case VERIFY -> verify();
+            case RECONCILE -> reconcile(ServiceRegistry.taskService());
+            default -> throw new IllegalArgumentException("Unknown maintenance action: " + name);
+        };
+    }
+
+    /**
+     * Writes the derived attributes that items written by older code lack: userStatus, the
+     * deadline bucket, the compressed description. Affected items are the ones written.
+     */
+    static MaintenanceAction migrate(DynamoDBService dynamoDBService) {
+        return page -> {
+            long now = System.currentTimeMillis();
+            int migrated = 0;
+            for (Map<String, AttributeValue> item : page.items()) {
+                if (dynamoDBService.migrateTask(item, now)) {
+                    migrated++;
+                }
+            }
+            return migrated;
+        };
+    }
+
+    /**
+     * Queues expiry checks for open tasks whose deadline passed while no sweep ran, for use after
+     * an outage longer than the sweep lookback. Affected tasks are the ones queued.
+     */
+    static MaintenanceAction reschedule(TaskService taskService) {
+        return page -> taskService.rescheduleMissedExpiries(page.tasks(), System.currentTimeMillis());
+    }
+
+    /**
+     * Recounts the TaskSummary of every user the scan comes across, once per run, and corrects the
+     * ones that have drifted from their tasks or whose window is due to move on. Also backfills the summaries of users whose tasks
+     * predate them. Users who wrote a task within the last hour or so are skipped; a later run
+     * picks them up. Affected items are the users corrected.
+     */
+    static MaintenanceAction reconcile(TaskService taskService) {
+        Set<String> reconciled = ConcurrentHashMap.newKeySet();
+        return page -> {
+            long now = System.currentTimeMillis();
+            int corrected = 0;
+            for (Map<String, AttributeValue> item : page.items()) {
+                String userId = item.get("userId").s();
+                if (reconciled.add(userId) && taskService.reconcileTaskSummary(userId, now)) {
+                    corrected++;
+                }
+            }
+            return corrected;
+        };
+    }
+
+    /**
+     * Reads only. Affected items are the ones migrate would write, plus any whose description
+     * cannot be decoded.
+     */
+    static MaintenanceAction verify() {
+        return page -> {
+            long now = System.currentTimeMillis();
+            int stale = 0;
+            for (Map<String, AttributeValue> item : page.items()) {
+                if (TaskTableRequests.migrate(item, now) != null || !hasReadableDescription(item)) {
+                    stale++;
+                }
+            }
+            return stale;
+        };
+    }
+
+    private static boolean hasReadableDescription(Map<String, AttributeValue> item) {
+        AttributeValue description = item.get("description");
+        if (description == null) {
+            return true;
+        }
+        try {
+            TaskDescription.fromAttributeValue(description).text();
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
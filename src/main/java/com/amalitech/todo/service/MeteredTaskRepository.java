@@ -0,0 +1,113 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.dto.request.ListTasksRequest;
+import com.amalitech.todo.dto.request.UpdateTaskRequest;
+import com.amalitech.todo.dto.response.TaskPageResponse;
+import com.amalitech.todo.metrics.InvocationMetrics;
+import com.amalitech.todo.model.Task;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Records the latency of every TaskRepository call, and the number of tasks each list page
+ * returns, into the metrics of the current invocation. The SDK calls underneath are recorded
+ * separately by MetricsInterceptor, so the difference between the two is the time spent mapping
+ * items and backing off between batch retries.
+ */
+public class MeteredTaskRepository implements TaskRepository {
+
+    private final TaskRepository delegate;
+
+    public MeteredTaskRepository(TaskRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void saveTask(Task task) {
+        timed("saveTask", () -> delegate.saveTask(task));
+    }
+
+    @Override
+    public TaskPageResponse getTasksForUser(String userId, ListTasksRequest request) {
+        TaskPageResponse page = timed("getTasksForUser", () -> delegate.getTasksForUser(userId, request));
+        InvocationMetrics.current().recordCount("TaskRepository.getTasksForUser.Items", page.items().size());
+        return page;
+    }
+
+    @Override
+    public Task getTask(String userId, String taskId) {
+        return timed("getTask", () -> delegate.getTask(userId, taskId));
+    }
+
+    @Override
+    public List<Task> getTaskStatesForUser(String userId) {
+        return timed("getTaskStatesForUser", () -> delegate.getTaskStatesForUser(userId));
+    }
+
+    @Override
+    public List<Task> getTasks(List<Task> keys) {
+        return timed("getTasks", () -> delegate.getTasks(keys));
+    }
+
+    @Override
+    public List<Task> saveTasks(List<Task> tasks) {
+        return timed("saveTasks", () -> delegate.saveTasks(tasks));
+    }
+
+    @Override
+    public List<String> deleteTasks(String userId, List<String> taskIds) {
+        return timed("deleteTasks", () -> delegate.deleteTasks(userId, taskIds));
+    }
+
+    @Override
+    public Task updateTask(String userId, String taskId, UpdateTaskRequest request, long now) {
+        return timed("updateTask", () -> delegate.updateTask(userId, taskId, request, now));
+    }
+
+    @Override
+    public void setDeadlineBucket(String userId, String taskId, Long bucket, long version) {
+        timed("setDeadlineBucket", () -> delegate.setDeadlineBucket(userId, taskId, bucket, version));
+    }
+
+    @Override
+    public Task deleteTask(String userId, String taskId, Long expectedVersion) {
+        return timed("deleteTask", () -> delegate.deleteTask(userId, taskId, expectedVersion));
+    }
+
+    @Override
+    public List<Task> getTasksDueInBucket(long bucket, long now) {
+        return timed("getTasksDueInBucket", () -> delegate.getTasksDueInBucket(bucket, now));
+    }
+
+    @Override
+    public Task claimDueTask(String userId, String taskId, long bucket) {
+        return timed("claimDueTask", () -> delegate.claimDueTask(userId, taskId, bucket));
+    }
+
+    @Override
+    public void restoreDeadlineBucket(String userId, String taskId, long bucket) {
+        timed("restoreDeadlineBucket", () -> delegate.restoreDeadlineBucket(userId, taskId, bucket));
+    }
+
+    @Override
+    public void clearDeadlineBucket(String userId, String taskId) {
+        timed("clearDeadlineBucket", () -> delegate.clearDeadlineBucket(userId, taskId));
+    }
+
+    private static <T> T timed(String operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            InvocationMetrics.current().recordLatency("TaskRepository." + operation + ".Latency", start);
+        }
+    }
+
+    private static void timed(String operation, Runnable call) {
+        timed(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+}
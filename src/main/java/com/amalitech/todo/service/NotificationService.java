@@ -1,64 +1,266 @@
 package com.amalitech.todo.service;
 
+import com.amalitech.todo.dto.request.SubscriptionRequest;
+import com.amalitech.todo.metrics.InvocationMetrics;
 import com.amalitech.todo.model.Task;
 
 import software.amazon.awssdk.services.sns.SnsClient;
+import software.amazon.awssdk.services.sns.model.GetSubscriptionAttributesRequest;
+import software.amazon.awssdk.services.sns.model.InvalidParameterException;
+import software.amazon.awssdk.services.sns.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sns.model.NotFoundException;
+import software.amazon.awssdk.services.sns.model.PublishBatchRequest;
+import software.amazon.awssdk.services.sns.model.PublishBatchRequestEntry;
+import software.amazon.awssdk.services.sns.model.PublishBatchResponse;
 import software.amazon.awssdk.services.sns.model.PublishRequest;
+import software.amazon.awssdk.services.sns.model.SetSubscriptionAttributesRequest;
 import software.amazon.awssdk.services.sns.model.SubscribeRequest;
+import software.amazon.awssdk.services.sns.model.UnsubscribeRequest;
 import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
 import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
 public class NotificationService {
-    private final SnsClient snsClient;
-    private final SqsClient sqsClient;
+    private static final int MAX_SQS_BATCH_SIZE = 10;
+    private static final int MAX_SNS_BATCH_SIZE = 10;
+    private static final int MAX_SNS_BATCH_BYTES = 256 * 1024;
+
+    private final Supplier<SnsClient> snsClient;
+    private final Supplier<SqsClient> sqsClient;
     private final String snsTopicArn = System.getenv("SNS_TOPIC_ARN");
     private final String sqsQueueUrl = System.getenv("SQS_QUEUE_URL");
-    private final ObjectMapper objectMapper = new ObjectMapper();
-
+    private final String subscriptionQueueUrl = System.getenv("SUBSCRIPTION_QUEUE_URL");
+    private final ObjectMapper objectMapper = ServiceRegistry.objectMapper();
 
     public NotificationService() {
-        this.snsClient = SnsClient.builder().build();
-        this.sqsClient = SqsClient.builder().build();
+        this(ServiceRegistry::snsClient, ServiceRegistry::sqsClient);
     }
 
-    public void subscribeUserToNotifications(String email) {
-        SubscribeRequest request = SubscribeRequest.builder()
+    public NotificationService(Supplier<SnsClient> snsClient, Supplier<SqsClient> sqsClient) {
+        this.snsClient = snsClient;
+        this.sqsClient = sqsClient;
+    }
+
+    /**
+     * Subscribes the email address with a filter policy on the userId message attribute, so it
+     * only receives this user's notifications. Returns the subscription ARN, which SNS hands out
+     * before the owner of the address has confirmed it; see isConfirmed.
+     *
+     * SNS rejects a Subscribe whose attributes differ from an existing subscription for the same
+     * address, as they do for subscriptions made before filter policies. Such a subscription is
+     * looked up with a plain Subscribe and given its filter policy in place.
+     */
+    public String subscribeUserToNotifications(String email, String userId) {
+        String filterPolicy = ExpiryDigests.filterPolicy(userId);
+        try {
+            return snsClient.get().subscribe(subscribeRequest(email, Map.of("FilterPolicy", filterPolicy))).subscriptionArn();
+        } catch (InvalidParameterException e) {
+            String subscriptionArn = snsClient.get().subscribe(subscribeRequest(email, Map.of())).subscriptionArn();
+            snsClient.get().setSubscriptionAttributes(SetSubscriptionAttributesRequest.builder()
+                    .subscriptionArn(subscriptionArn)
+                    .attributeName("FilterPolicy")
+                    .attributeValue(filterPolicy)
+                    .build());
+            return subscriptionArn;
+        }
+    }
+
+    private SubscribeRequest subscribeRequest(String email, Map<String, String> attributes) {
+        return SubscribeRequest.builder()
                 .protocol("email")
                 .endpoint(email)
                 .topicArn(snsTopicArn)
+                .attributes(attributes)
+                .returnSubscriptionArn(true)
                 .build();
-        snsClient.subscribe(request);
     }
 
-    public void sendTaskExpiryNotification(Task task) {
-        String subject = "Task Deadline approaching: " + task.getTitle();
-        String message = String.format(
-                "Your task '%s' is due soon!\n\nDescription: %s",
-                task.getTitle(),
-                task.getDescription()
-        );
+    /**
+     * True once the owner of the address has confirmed the subscription; until then it delivers
+     * nothing. A subscription SNS has already dropped counts as unconfirmed.
+     */
+    public boolean isConfirmed(String subscriptionArn) {
+        if (!isSubscriptionArn(subscriptionArn)) {
+            return false;
+        }
+        try {
+            Map<String, String> attributes = snsClient.get().getSubscriptionAttributes(
+                    GetSubscriptionAttributesRequest.builder().subscriptionArn(subscriptionArn).build()).attributes();
+            return "false".equals(attributes.get("PendingConfirmation"));
+        } catch (NotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Removes the subscription. Does nothing for the "pending confirmation" placeholder SNS
+     * returns in place of an ARN, or for a subscription SNS has already dropped.
+     */
+    public void unsubscribe(String subscriptionArn) {
+        if (!isSubscriptionArn(subscriptionArn)) {
+            return;
+        }
+        try {
+            snsClient.get().unsubscribe(UnsubscribeRequest.builder().subscriptionArn(subscriptionArn).build());
+        } catch (NotFoundException e) {
+            // Unconfirmed subscriptions expire on their own.
+        }
+    }
+
+    private static boolean isSubscriptionArn(String subscriptionArn) {
+        return subscriptionArn != null && subscriptionArn.startsWith("arn:");
+    }
 
+    /**
+     * Hands the subscription to SubscriptionHandler through SUBSCRIPTION_QUEUE_URL, so the caller
+     * does not wait on SNS.
+     */
+    public void queueSubscription(SubscriptionRequest subscription) {
+        try {
+            SendMessageRequest request = SendMessageRequest.builder()
+                    .queueUrl(subscriptionQueueUrl)
+                    .messageBody(objectMapper.writeValueAsString(subscription))
+                    .build();
+            sqsClient.get().sendMessage(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize subscription request", e);
+        }
+    }
+
+    public void sendTaskExpiryNotification(Task task) {
         PublishRequest request = PublishRequest.builder()
                 .topicArn(snsTopicArn)
-                .subject(subject)
-                .message(message)
+                .subject(ExpiryDigests.subject(List.of(task)))
+                .message(ExpiryDigests.message(List.of(task)))
+                .messageAttributes(ExpiryDigests.attributes(task.getUserId(), 1))
                 .build();
-        snsClient.publish(request);
+        snsClient.get().publish(request);
+    }
+
+    /**
+     * Sends each user a single digest of their due tasks instead of one message per task.
+     * Digests go out with PublishBatch, ten per call and within the batch payload limit.
+     * Returns the given tasks whose digest SNS did not accept, including every task of a call that
+     * failed outright; the caller decides how to retry them, and the failed calls are counted in
+     * the invocation metrics.
+     */
+    public List<Task> sendTaskExpiryDigests(List<Task> tasks) {
+        Map<String, List<Task>> tasksByUser = new LinkedHashMap<>();
+        for (Task task : tasks) {
+            tasksByUser.computeIfAbsent(task.getUserId(), userId -> new ArrayList<>()).add(task);
+        }
+        List<List<Task>> digests = new ArrayList<>(tasksByUser.values());
+        InvocationMetrics.current().count("ExpiryDigests.Digests", digests.size());
+        InvocationMetrics.current().count("ExpiryDigests.Tasks", tasks.size());
+
+        List<Task> failed = new ArrayList<>();
+        int start = 0;
+        while (start < digests.size()) {
+            List<PublishBatchRequestEntry> entries = new ArrayList<>(MAX_SNS_BATCH_SIZE);
+            int batchBytes = 0;
+            int end = start;
+            while (end < digests.size() && entries.size() < MAX_SNS_BATCH_SIZE) {
+                List<Task> digest = digests.get(end);
+                String subject = ExpiryDigests.subject(digest);
+                String message = ExpiryDigests.message(digest);
+                Map<String, MessageAttributeValue> attributes =
+                        ExpiryDigests.attributes(digest.get(0).getUserId(), digest.size());
+                int size = ExpiryDigests.sizeOf(subject, message, attributes);
+                if (!entries.isEmpty() && batchBytes + size > MAX_SNS_BATCH_BYTES) {
+                    break;
+                }
+                entries.add(PublishBatchRequestEntry.builder()
+                        .id(Integer.toString(end - start))
+                        .subject(subject)
+                        .message(message)
+                        .messageAttributes(attributes)
+                        .build());
+                batchBytes += size;
+                end++;
+            }
+
+            try {
+                PublishBatchRequest request = PublishBatchRequest.builder()
+                        .topicArn(snsTopicArn)
+                        .publishBatchRequestEntries(entries)
+                        .build();
+                PublishBatchResponse response = snsClient.get().publishBatch(request);
+                int first = start;
+                response.failed().forEach(error -> failed.addAll(digests.get(first + Integer.parseInt(error.id()))));
+                InvocationMetrics.current().count("Sns.PublishBatch.FailedEntries", response.failed().size());
+            } catch (RuntimeException e) {
+                digests.subList(start, end).forEach(failed::addAll);
+            }
+            start = end;
+        }
+        return failed;
     }
 
+    /**
+     * Queues an expiry check for the task. Throws if it could not be queued, so the caller can
+     * retry it or report the failure.
+     */
     public void scheduleTaskForExpiryCheck(Task task) {
+        String messageBody;
         try {
-            String messageBody = objectMapper.writeValueAsString(task);
-            SendMessageRequest request = SendMessageRequest.builder()
-                    .queueUrl(sqsQueueUrl)
-                    .messageBody(messageBody)
-                    .messageGroupId(task.getUserId())
-                    .messageDeduplicationId(task.getTaskId() + "-" + System.currentTimeMillis())
-                    .build();
-            sqsClient.sendMessage(request);
-        } catch (Exception e) {
-            System.err.println("Failed to send message to SQS: " + e.getMessage());
+            messageBody = objectMapper.writeValueAsString(task);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize task " + task.getTaskId(), e);
+        }
+        SendMessageRequest request = SendMessageRequest.builder()
+                .queueUrl(sqsQueueUrl)
+                .messageBody(messageBody)
+                .messageGroupId(task.getUserId())
+                .messageDeduplicationId(ExpiryDigests.deduplicationId(task))
+                .build();
+        sqsClient.get().sendMessage(request);
+    }
+
+    /**
+     * Queues expiry checks with SendMessageBatch, ten tasks per call.
+     * Returns the tasks that SQS did not accept, including every task of a call that failed
+     * outright. Rejected entries are also counted in the invocation metrics, since a partly failed
+     * batch is still a successful call.
+     */
+    public List<Task> scheduleTasksForExpiryCheck(List<Task> tasks) {
+        List<Task> failed = new ArrayList<>();
+        for (int start = 0; start < tasks.size(); start += MAX_SQS_BATCH_SIZE) {
+            List<Task> chunk = tasks.subList(start, Math.min(start + MAX_SQS_BATCH_SIZE, tasks.size()));
+            try {
+                List<SendMessageBatchRequestEntry> entries = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    Task task = chunk.get(i);
+                    entries.add(SendMessageBatchRequestEntry.builder()
+                            .id(Integer.toString(i))
+                            .messageBody(objectMapper.writeValueAsString(task))
+                            .messageGroupId(task.getUserId())
+                            .messageDeduplicationId(ExpiryDigests.deduplicationId(task))
+                            .build());
+                }
+
+                SendMessageBatchRequest request = SendMessageBatchRequest.builder()
+                        .queueUrl(sqsQueueUrl)
+                        .entries(entries)
+                        .build();
+                List<BatchResultErrorEntry> errors = sqsClient.get().sendMessageBatch(request).failed();
+                for (BatchResultErrorEntry error : errors) {
+                    failed.add(chunk.get(Integer.parseInt(error.id())));
+                }
+                InvocationMetrics.current().count("Sqs.SendMessageBatch.FailedEntries", errors.size());
+            } catch (JsonProcessingException | RuntimeException e) {
+                failed.addAll(chunk);
+            }
         }
+        return failed;
     }
 }
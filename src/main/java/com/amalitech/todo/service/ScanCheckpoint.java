@@ -0,0 +1,76 @@
+package com.amalitech.todo.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * How far each segment of a parallel scan has got, so an interrupted scan resumes where it
+ * stopped. cursors holds the encoded lastEvaluatedKey of each segment that is under way; a
+ * segment that is in neither cursors nor completed has not started.
+ */
+public record ScanCheckpoint(
+        int totalSegments,
+        Map<Integer, String> cursors,
+        Set<Integer> completed
+) {
+
+    // DynamoDB's limit on TotalSegments.
+    public static final int MAX_SEGMENTS = 1_000_000;
+
+    public ScanCheckpoint {
+        if (totalSegments < 1 || totalSegments > MAX_SEGMENTS) {
+            throw new IllegalArgumentException("totalSegments must be between 1 and " + MAX_SEGMENTS);
+        }
+        cursors = cursors != null ? Map.copyOf(cursors) : Map.of();
+        completed = completed != null ? Set.copyOf(completed) : Set.of();
+        for (int segment : cursors.keySet()) {
+            checkSegment(segment, totalSegments);
+        }
+        for (int segment : completed) {
+            checkSegment(segment, totalSegments);
+        }
+    }
+
+    public static ScanCheckpoint start(int totalSegments) {
+        return new ScanCheckpoint(totalSegments, Map.of(), Set.of());
+    }
+
+    private static void checkSegment(int segment, int totalSegments) {
+        if (segment < 0 || segment >= totalSegments) {
+            throw new IllegalArgumentException("No segment " + segment + " in a scan of " + totalSegments);
+        }
+    }
+
+    /**
+     * The checkpoint after a segment has read a page: it resumes from cursor, or is complete
+     * when cursor is null.
+     */
+    public ScanCheckpoint advance(int segment, String cursor) {
+        Map<Integer, String> nextCursors = new HashMap<>(cursors);
+        Set<Integer> nextCompleted = new HashSet<>(completed);
+        if (cursor != null) {
+            nextCursors.put(segment, cursor);
+        } else {
+            nextCursors.remove(segment);
+            nextCompleted.add(segment);
+        }
+        return new ScanCheckpoint(totalSegments, nextCursors, nextCompleted);
+    }
+
+    /**
+     * The segments still to scan, in order.
+     */
+    public int[] pendingSegments() {
+        return IntStream.range(0, totalSegments).filter(segment -> !completed.contains(segment)).toArray();
+    }
+
+    @JsonIgnore
+    public boolean isComplete() {
+        return completed.size() == totalSegments;
+    }
+}
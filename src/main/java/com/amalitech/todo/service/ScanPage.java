@@ -0,0 +1,24 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.model.Task;
+import com.amalitech.todo.model.TaskTableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of one segment of a parallel Scan of TaskTable. Items are kept as they are stored,
+ * so maintenance actions can see which attributes an item lacks. lastEvaluatedKey is null on the
+ * last page of the segment, and consumedCapacity is the read capacity the page cost.
+ */
+public record ScanPage(
+        List<Map<String, AttributeValue>> items,
+        Map<String, AttributeValue> lastEvaluatedKey,
+        double consumedCapacity
+) {
+
+    public List<Task> tasks() {
+        return items.stream().map(TaskTableSchema.INSTANCE::mapToItem).toList();
+    }
+}
@@ -0,0 +1,121 @@
+package com.amalitech.todo.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Runs a maintenance action over every item of TaskTable with a parallel Scan: each segment is
+ * read page by page on its own virtual thread, all of them drawing on one CapacityLimiter so the
+ * scan as a whole stays under its read rate. Writes made by the action are bounded by the same
+ * rate, since there is at most one per item scanned.
+ *
+ * <p>After every page the segment's position is recorded in a ScanCheckpoint and handed to the
+ * caller, which can persist it and later resume from it. A segment stops when it reaches its end,
+ * when the caller asks the scan to stop, or when a read or the action fails; the others carry on.
+ */
+public final class SegmentedScan {
+
+    /**
+     * Totals of one run. The checkpoint covers every segment, including those it did not finish.
+     */
+    public record Result(long scanned, long affected, double consumedCapacity, int failedSegments,
+                         ScanCheckpoint checkpoint) {}
+
+    private static final int PAGE_SIZE = 100;
+    // An eventually consistent read of up to 4 KB, the cheapest page there is.
+    private static final double MIN_PAGE_ESTIMATE = 0.5;
+
+    private final DynamoDBService dynamoDBService;
+    private final CapacityLimiter limiter;
+    private final Consumer<String> log;
+
+    public SegmentedScan(DynamoDBService dynamoDBService, CapacityLimiter limiter, Consumer<String> log) {
+        this.dynamoDBService = dynamoDBService;
+        this.limiter = limiter;
+        this.log = log;
+    }
+
+    /**
+     * Scans the segments the checkpoint has not completed, each from where it left off.
+     * onCheckpoint receives the updated checkpoint after every page, one call at a time and in
+     * order; stopRequested is polled before every page.
+     */
+    public Result run(MaintenanceAction action, ScanCheckpoint from,
+                      Consumer<ScanCheckpoint> onCheckpoint, BooleanSupplier stopRequested) {
+        Run run = new Run(action, from, onCheckpoint, stopRequested);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int segment : from.pendingSegments()) {
+                executor.submit(() -> run.scanSegment(segment));
+            }
+        }
+        return new Result(run.scanned.get(), run.affected.get(), run.consumedCapacity.sum(),
+                run.failedSegments.get(), run.checkpoint);
+    }
+
+    private final class Run {
+        private final MaintenanceAction action;
+        private final Consumer<ScanCheckpoint> onCheckpoint;
+        private final BooleanSupplier stopRequested;
+        private final ReentrantLock checkpointLock = new ReentrantLock();
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong affected = new AtomicLong();
+        private final DoubleAdder consumedCapacity = new DoubleAdder();
+        private final AtomicInteger failedSegments = new AtomicInteger();
+        private volatile ScanCheckpoint checkpoint;
+
+        Run(MaintenanceAction action, ScanCheckpoint from,
+            Consumer<ScanCheckpoint> onCheckpoint, BooleanSupplier stopRequested) {
+            this.action = action;
+            this.checkpoint = from;
+            this.onCheckpoint = onCheckpoint;
+            this.stopRequested = stopRequested;
+        }
+
+        void scanSegment(int segment) {
+            String cursor = checkpoint.cursors().get(segment);
+            double estimate = MIN_PAGE_ESTIMATE;
+            try {
+                while (!stopRequested.getAsBoolean()) {
+                    limiter.acquire(estimate);
+                    ScanPage page = dynamoDBService.scanSegment(
+                            segment, checkpoint.totalSegments(), TaskCursorCodec.decode(cursor), PAGE_SIZE);
+                    limiter.settle(estimate, page.consumedCapacity());
+                    estimate = Math.max(MIN_PAGE_ESTIMATE, page.consumedCapacity());
+                    consumedCapacity.add(page.consumedCapacity());
+
+                    affected.addAndGet(action.apply(page));
+                    scanned.addAndGet(page.items().size());
+                    cursor = TaskCursorCodec.encode(page.lastEvaluatedKey());
+                    advance(segment, cursor);
+                    if (cursor == null) {
+                        return;
+                    }
+                }
+            } catch (RuntimeException e) {
+                failedSegments.incrementAndGet();
+                log.accept("Segment " + segment + " failed, it resumes from its last checkpoint: " + e);
+            }
+        }
+
+        /**
+         * Records the segment's new position and reports it. Both happen under one lock (not a
+         * monitor, which would pin the virtual thread while the caller persists it) so the
+         * caller never sees an older checkpoint after a newer one.
+         */
+        private void advance(int segment, String cursor) {
+            checkpointLock.lock();
+            try {
+                checkpoint = checkpoint.advance(segment, cursor);
+                onCheckpoint.accept(checkpoint);
+            } finally {
+                checkpointLock.unlock();
+            }
+        }
+    }
+}
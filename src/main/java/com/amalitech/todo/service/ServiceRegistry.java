@@ -0,0 +1,222 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.metrics.MetricsInterceptor;
+import com.amalitech.todo.model.Task;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.core.client.builder.SdkClientBuilder;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.sns.SnsAsyncClient;
+import software.amazon.awssdk.services.sns.SnsClient;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+
+import java.net.URI;
+import java.util.Objects;
+
+/**
+ * Process-wide home for the AWS SDK clients and services shared by every handler.
+ * Each client is built on first use through a holder class, so a handler only pays for the
+ * clients it actually calls. Blocking clients share one HTTP transport and the async clients
+ * share one non-blocking (Netty) transport. Every client reports its calls to the invocation
+ * metrics through MetricsInterceptor.
+ * Priming builds everything up front; it runs automatically under SnapStart or when
+ * PRIME_CLIENTS=true so the work lands in the snapshot instead of the first request.
+ */
+public final class ServiceRegistry {
+
+    private static final Region REGION = Region.of(Objects.requireNonNullElse(System.getenv("AWS_REGION"), "eu-central-1"));
+
+    static {
+        if ("snap-start".equals(System.getenv("AWS_LAMBDA_INITIALIZATION_TYPE"))
+                || Boolean.parseBoolean(System.getenv("PRIME_CLIENTS"))) {
+            prime();
+        }
+    }
+
+    private ServiceRegistry() {
+    }
+
+    private static final class HttpClientHolder {
+        static final SdkHttpClient INSTANCE = ApacheHttpClient.builder().build();
+    }
+
+    private static final class DynamoDbClientHolder {
+        static final DynamoDbClient INSTANCE = configureDynamoDb(DynamoDbClient.builder())
+                .httpClient(HttpClientHolder.INSTANCE)
+                .build();
+    }
+
+    private static final class SnsClientHolder {
+        static final SnsClient INSTANCE = withMetrics(SnsClient.builder())
+                .httpClient(HttpClientHolder.INSTANCE)
+                .build();
+    }
+
+    private static final class SqsClientHolder {
+        static final SqsClient INSTANCE = withMetrics(SqsClient.builder())
+                .httpClient(HttpClientHolder.INSTANCE)
+                .build();
+    }
+
+    private static final class AsyncHttpClientHolder {
+        static final SdkAsyncHttpClient INSTANCE = NettyNioAsyncHttpClient.builder().build();
+    }
+
+    private static final class DynamoDbAsyncClientHolder {
+        static final DynamoDbAsyncClient INSTANCE = configureDynamoDb(DynamoDbAsyncClient.builder())
+                .httpClient(AsyncHttpClientHolder.INSTANCE)
+                .build();
+    }
+
+    private static final class SnsAsyncClientHolder {
+        static final SnsAsyncClient INSTANCE = withMetrics(SnsAsyncClient.builder())
+                .httpClient(AsyncHttpClientHolder.INSTANCE)
+                .build();
+    }
+
+    private static final class SqsAsyncClientHolder {
+        static final SqsAsyncClient INSTANCE = withMetrics(SqsAsyncClient.builder())
+                .httpClient(AsyncHttpClientHolder.INSTANCE)
+                .build();
+    }
+
+    private static final class ObjectMapperHolder {
+        static final ObjectMapper INSTANCE = new ObjectMapper();
+    }
+
+    private static final class DynamoDBServiceHolder {
+        static final DynamoDBService INSTANCE = new DynamoDBService(dynamoDbClient());
+    }
+
+    private static final class NotificationServiceHolder {
+        static final NotificationService INSTANCE = new NotificationService();
+    }
+
+    private static final class AsyncDynamoDBServiceHolder {
+        static final AsyncDynamoDBService INSTANCE = new AsyncDynamoDBService(dynamoDbAsyncClient());
+    }
+
+    private static final class AsyncNotificationServiceHolder {
+        static final AsyncNotificationService INSTANCE = new AsyncNotificationService();
+    }
+
+    private static final class UserMetaServiceHolder {
+        static final UserMetaService INSTANCE = new UserMetaService();
+    }
+
+    private static final class SubscriptionServiceHolder {
+        static final SubscriptionService INSTANCE = new SubscriptionService();
+    }
+
+    private static final class TaskRepositoryHolder {
+        static final TaskRepository INSTANCE = new MeteredTaskRepository(dynamoDBService());
+    }
+
+    private static final class TaskServiceHolder {
+        static final TaskService INSTANCE = new TaskService();
+    }
+
+    /**
+     * Region comes from AWS_REGION, as set by Lambda, defaulting to eu-central-1. DYNAMODB_ENDPOINT
+     * points both DynamoDB clients elsewhere, e.g. at DynamoDB Local.
+     */
+    private static <B extends AwsClientBuilder<B, ?>> B configureDynamoDb(B builder) {
+        withMetrics(builder).region(REGION);
+        String endpoint = System.getenv("DYNAMODB_ENDPOINT");
+        if (endpoint != null) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder;
+    }
+
+    private static <B extends SdkClientBuilder<B, ?>> B withMetrics(B builder) {
+        return builder.overrideConfiguration(config -> config.addExecutionInterceptor(MetricsInterceptor.INSTANCE));
+    }
+
+    public static DynamoDbClient dynamoDbClient() {
+        return DynamoDbClientHolder.INSTANCE;
+    }
+
+    public static SnsClient snsClient() {
+        return SnsClientHolder.INSTANCE;
+    }
+
+    public static SqsClient sqsClient() {
+        return SqsClientHolder.INSTANCE;
+    }
+
+    public static DynamoDbAsyncClient dynamoDbAsyncClient() {
+        return DynamoDbAsyncClientHolder.INSTANCE;
+    }
+
+    public static SnsAsyncClient snsAsyncClient() {
+        return SnsAsyncClientHolder.INSTANCE;
+    }
+
+    public static SqsAsyncClient sqsAsyncClient() {
+        return SqsAsyncClientHolder.INSTANCE;
+    }
+
+    public static ObjectMapper objectMapper() {
+        return ObjectMapperHolder.INSTANCE;
+    }
+
+    public static DynamoDBService dynamoDBService() {
+        return DynamoDBServiceHolder.INSTANCE;
+    }
+
+    /**
+     * The DynamoDB engine, with every call recorded in the invocation metrics.
+     */
+    public static TaskRepository taskRepository() {
+        return TaskRepositoryHolder.INSTANCE;
+    }
+
+    public static NotificationService notificationService() {
+        return NotificationServiceHolder.INSTANCE;
+    }
+
+    public static AsyncDynamoDBService asyncDynamoDBService() {
+        return AsyncDynamoDBServiceHolder.INSTANCE;
+    }
+
+    public static AsyncNotificationService asyncNotificationService() {
+        return AsyncNotificationServiceHolder.INSTANCE;
+    }
+
+    public static UserMetaService userMetaService() {
+        return UserMetaServiceHolder.INSTANCE;
+    }
+
+    public static SubscriptionService subscriptionService() {
+        return SubscriptionServiceHolder.INSTANCE;
+    }
+
+    public static TaskService taskService() {
+        return TaskServiceHolder.INSTANCE;
+    }
+
+    /**
+     * Builds every blocking client and service and warms the JSON mapper, so none of it happens on
+     * the first request. No network calls are made. The async clients are left lazy since only
+     * callers of the TaskService async methods need them.
+     */
+    public static void prime() {
+        taskRepository();
+        snsClient();
+        sqsClient();
+        taskService();
+        try {
+            objectMapper().readValue(objectMapper().writeValueAsString(new Task()), Task.class);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not prime object mapper", e);
+        }
+    }
+}
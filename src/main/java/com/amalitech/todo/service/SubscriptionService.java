@@ -0,0 +1,111 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.dto.request.SubscriptionRequest;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps each user subscribed to notifications at their current email without calling SNS on
+ * every sign-in. The subscription registry lives in the user's UserMetaTable item; a warm
+ * container also remembers the emails it has already seen settled, so a repeat sign-in costs
+ * nothing. New or changed emails are queued and subscribed by SubscriptionHandler, off the
+ * sign-in path. SNS only delivers once the owner of the address confirms, so a subscription stays
+ * PENDING until then and is checked again on a later sign-in.
+ */
+public class SubscriptionService {
+
+    /**
+     * A subscription still queued after this long is assumed lost and queued again.
+     */
+    private static final long REQUEUE_AFTER_MILLIS = 60 * 60 * 1000;
+
+    /**
+     * A subscription still pending confirmation after this long is queued again, which picks up a
+     * confirmation since or has SNS send the confirmation email again.
+     */
+    private static final long RECHECK_PENDING_AFTER_MILLIS = 24 * 60 * 60 * 1000;
+
+    private final Supplier<UserMetaService> userMetaService;
+    private final Supplier<NotificationService> notificationService;
+    private final Map<String, String> knownEmails = new ConcurrentHashMap<>();
+
+    public SubscriptionService() {
+        this(ServiceRegistry::userMetaService, ServiceRegistry::notificationService);
+    }
+
+    public SubscriptionService(Supplier<UserMetaService> userMetaService, Supplier<NotificationService> notificationService) {
+        this.userMetaService = userMetaService;
+        this.notificationService = notificationService;
+    }
+
+    /**
+     * Called on sign-in. Returns true if a subscription was queued, false if the registry already
+     * covers this email. Costs nothing when this container has seen the email settled, and one
+     * read otherwise.
+     */
+    public boolean ensureSubscribed(String userId, String email) {
+        if (email.equals(knownEmails.get(userId))) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        UserMetaService.Subscription subscription = userMetaService.get().getSubscription(userId);
+        if (subscription != null && subscription.email().equals(email) && isSettled(subscription, now)) {
+            rememberIfSubscribed(userId, subscription);
+            return false;
+        }
+
+        if (!userMetaService.get().queueSubscription(
+                userId, email, now, now - REQUEUE_AFTER_MILLIS, now - RECHECK_PENDING_AFTER_MILLIS)) {
+            return false;
+        }
+        notificationService.get().queueSubscription(new SubscriptionRequest(userId, email));
+        return true;
+    }
+
+    /**
+     * Called from the subscription queue. Subscribes the email, recording it as PENDING until its
+     * owner confirms it, and when it replaces an earlier one, removes the old subscription.
+     * Requests for an email the user has since moved on from, or that is already subscribed, are
+     * dropped. Subscribing an address again returns its existing subscription, so a requeued
+     * PENDING request resolves to the same ARN.
+     */
+    public void processSubscription(SubscriptionRequest request) {
+        UserMetaService.Subscription subscription = userMetaService.get().getSubscription(request.userId());
+        if (subscription == null || !subscription.email().equals(request.email())
+                || UserMetaService.SUBSCRIPTION_SUBSCRIBED.equals(subscription.status())) {
+            return;
+        }
+
+        String arn = notificationService.get().subscribeUserToNotifications(request.email(), request.userId());
+        String status = notificationService.get().isConfirmed(arn)
+                ? UserMetaService.SUBSCRIPTION_SUBSCRIBED
+                : UserMetaService.SUBSCRIPTION_PENDING;
+        boolean current = userMetaService.get().completeSubscription(
+                request.userId(), request.email(), arn, status, System.currentTimeMillis());
+        if (!current) {
+            // The user changed email again while this was queued; the newer request takes over.
+            notificationService.get().unsubscribe(arn);
+        } else if (subscription.arn() != null && !subscription.arn().equals(arn)) {
+            notificationService.get().unsubscribe(subscription.arn());
+        }
+    }
+
+    private static boolean isSettled(UserMetaService.Subscription subscription, long now) {
+        if (UserMetaService.SUBSCRIPTION_SUBSCRIBED.equals(subscription.status())) {
+            return true;
+        }
+        if (UserMetaService.SUBSCRIPTION_PENDING.equals(subscription.status())) {
+            return subscription.updatedAt() >= now - RECHECK_PENDING_AFTER_MILLIS;
+        }
+        return subscription.updatedAt() >= now - REQUEUE_AFTER_MILLIS;
+    }
+
+    private void rememberIfSubscribed(String userId, UserMetaService.Subscription subscription) {
+        if (UserMetaService.SUBSCRIPTION_SUBSCRIBED.equals(subscription.status())) {
+            knownEmails.put(userId, subscription.email());
+        }
+    }
+}
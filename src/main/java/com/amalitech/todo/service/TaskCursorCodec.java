@@ -0,0 +1,63 @@
+package com.amalitech.todo.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Converts DynamoDB lastEvaluatedKey maps to opaque URL-safe cursors and back.
+ * Only string and number key attributes are supported, which covers every key in TaskTable.
+ */
+public final class TaskCursorCodec {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final TypeReference<Map<String, Map<String, String>>> CURSOR_TYPE = new TypeReference<>() {};
+
+    private TaskCursorCodec() {
+    }
+
+    public static String encode(Map<String, AttributeValue> key) {
+        if (key == null || key.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Map<String, String>> plainKey = new LinkedHashMap<>();
+        key.forEach((name, value) -> plainKey.put(name,
+                value.n() != null ? Map.of("N", value.n()) : Map.of("S", value.s())));
+
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(plainKey));
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not encode cursor", e);
+        }
+    }
+
+    public static Map<String, AttributeValue> decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Map<String, String>> plainKey;
+        try {
+            plainKey = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), CURSOR_TYPE);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+
+        Map<String, AttributeValue> key = new LinkedHashMap<>();
+        plainKey.forEach((name, value) -> {
+            if (value.containsKey("N")) {
+                key.put(name, AttributeValue.builder().n(value.get("N")).build());
+            } else if (value.containsKey("S")) {
+                key.put(name, AttributeValue.builder().s(value.get("S")).build());
+            } else {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+        });
+        return key;
+    }
+}
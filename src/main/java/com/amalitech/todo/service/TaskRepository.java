@@ -0,0 +1,90 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.dto.request.ListTasksRequest;
+import com.amalitech.todo.dto.request.UpdateTaskRequest;
+import com.amalitech.todo.dto.response.TaskPageResponse;
+import com.amalitech.todo.model.Task;
+
+import java.util.List;
+
+/**
+ * Storage for tasks, keyed by userId and taskId. DynamoDBService is the production engine;
+ * InMemoryTaskRepository keeps the same semantics in process for local runs and load tests.
+ * Batch limits follow DynamoDB so callers chunk the same way whatever the engine.
+ */
+public interface TaskRepository {
+
+    int MAX_BATCH_GET_KEYS = 100;
+    int MAX_BATCH_WRITE_ITEMS = 25;
+
+    void saveTask(Task task);
+
+    /**
+     * Reads a single page of the user's tasks in taskId order.
+     */
+    TaskPageResponse getTasksForUser(String userId, ListTasksRequest request);
+
+    Task getTask(String userId, String taskId);
+
+    /**
+     * Reads all of the user's tasks with a strongly consistent read, populating only userId,
+     * taskId, completed and deadline, which is what TaskSummary counts.
+     */
+    List<Task> getTaskStatesForUser(String userId);
+
+    /**
+     * Reads up to MAX_BATCH_GET_KEYS tasks, identified by userId and taskId. Missing tasks are omitted.
+     */
+    List<Task> getTasks(List<Task> keys);
+
+    /**
+     * Writes up to MAX_BATCH_WRITE_ITEMS tasks. Returns the tasks that could not be written.
+     */
+    List<Task> saveTasks(List<Task> tasks);
+
+    /**
+     * Deletes up to MAX_BATCH_WRITE_ITEMS of the user's tasks, unconditionally.
+     * Returns the task IDs that could not be deleted.
+     */
+    List<String> deleteTasks(String userId, List<String> taskIds);
+
+    /**
+     * Applies the non-null fields of the request and bumps the version. Returns the updated task, or
+     * null if it does not exist. Throws TaskVersionConflictException when the request carries a
+     * version the task is no longer at.
+     */
+    Task updateTask(String userId, String taskId, UpdateTaskRequest request, long now);
+
+    /**
+     * Sets or removes the deadline bucket of a task, provided it is still at the given version.
+     */
+    void setDeadlineBucket(String userId, String taskId, Long bucket, long version);
+
+    /**
+     * Deletes a task. Returns the deleted task, or null if it did not exist. When expectedVersion
+     * is set, the delete only applies at that version and throws TaskVersionConflictException otherwise.
+     */
+    Task deleteTask(String userId, String taskId, Long expectedVersion);
+
+    /**
+     * Returns the keys of tasks in the given deadline bucket whose deadline is at or before now.
+     */
+    List<Task> getTasksDueInBucket(long bucket, long now);
+
+    /**
+     * Atomically takes a due task out of its deadline bucket so only one sweep notifies for it.
+     * Returns the current task, or null if it was already claimed, completed or deleted.
+     */
+    Task claimDueTask(String userId, String taskId, long bucket);
+
+    /**
+     * Puts a claimed task back into its bucket so a later sweep retries it, unless it has been
+     * completed or deleted since.
+     */
+    void restoreDeadlineBucket(String userId, String taskId, long bucket);
+
+    /**
+     * Takes a completed task out of its deadline bucket, if it is still in one.
+     */
+    void clearDeadlineBucket(String userId, String taskId);
+}
@@ -1,23 +1,139 @@
 package com.amalitech.todo.service;
 
 import com.amalitech.todo.dto.request.CreateTaskRequest;
+import com.amalitech.todo.dto.request.ListTasksRequest;
 import com.amalitech.todo.dto.request.UpdateTaskRequest;
+import com.amalitech.todo.dto.response.BatchTaskResult;
+import com.amalitech.todo.dto.response.TaskPageResponse;
 import com.amalitech.todo.model.Task;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 public class TaskService {
 
-    private final DynamoDBService dynamoDBService;
-    private final NotificationService notificationService;
+    public static final int MAX_BULK_ITEMS = 500;
+    private static final int MAX_RECONCILE_ATTEMPTS = 3;
+    // Longer than the stream mapping's MaximumRecordAgeInSeconds (an hour) plus a processing run,
+    // so by then every record of the user's writes has been applied or sent to the DLQ.
+    private static final long RECONCILE_QUIET_MILLIS = 70 * 60_000L;
+
+    /**
+     * Outcome of one deadline sweep: tasks notified, tasks left in their bucket for a retry, and
+     * buckets that could not be read or fully claimed, which the next sweep's lookback covers.
+     */
+    public record SweepResult(int notified, int failed, int failedBuckets) {}
+
+    private final Supplier<TaskRepository> taskRepository;
+    private final Supplier<NotificationService> notificationService;
+    private final Supplier<AsyncDynamoDBService> asyncDynamoDBService;
+    private final Supplier<AsyncNotificationService> asyncNotificationService;
+    private final Supplier<UserMetaService> userMetaService;
 
     public TaskService() {
-        this.dynamoDBService = new DynamoDBService();
-        this.notificationService = new NotificationService();
+        this(ServiceRegistry::taskRepository, ServiceRegistry::notificationService);
+    }
+
+    public TaskService(Supplier<TaskRepository> taskRepository, Supplier<NotificationService> notificationService) {
+        this(taskRepository, notificationService,
+                ServiceRegistry::asyncDynamoDBService, ServiceRegistry::asyncNotificationService,
+                ServiceRegistry::userMetaService);
+    }
+
+    public TaskService(Supplier<TaskRepository> taskRepository,
+                       Supplier<NotificationService> notificationService,
+                       Supplier<AsyncDynamoDBService> asyncDynamoDBService,
+                       Supplier<AsyncNotificationService> asyncNotificationService,
+                       Supplier<UserMetaService> userMetaService) {
+        this.taskRepository = taskRepository;
+        this.notificationService = notificationService;
+        this.asyncDynamoDBService = asyncDynamoDBService;
+        this.asyncNotificationService = asyncNotificationService;
+        this.userMetaService = userMetaService;
     }
 
     public Task createTask(String userId, CreateTaskRequest request) {
+        Task task = newTask(userId, request);
+        taskRepository.get().saveTask(task);
+        userMetaService.get().bumpListVersion(userId);
+        return task;
+    }
+
+    /**
+     * Returns the version of the user's task list. Every create, update and delete bumps it after
+     * the write, so an unchanged version means an unchanged list.
+     */
+    public long getListVersion(String userId) {
+        return userMetaService.get().getListVersion(userId);
+    }
+
+    /**
+     * Returns the user's task summary as of the last stream record applied, or counted from their
+     * tasks if its window no longer covers the day around now.
+     */
+    public TaskSummary getTaskSummary(String userId, long now) {
+        TaskSummary summary = userMetaService.get().getTaskSummary(userId);
+        return summary.covers(now) ? summary : TaskSummary.of(taskRepository.get().getTaskStatesForUser(userId));
+    }
+
+    /**
+     * Applies each user's summary changes, users in parallel on virtual threads. Returns the users
+     * whose changes could not be applied.
+     */
+    public Set<String> applyTaskSummaryChanges(Map<String, List<TaskSummary.Change>> changesByUser) {
+        Map<String, Future<?>> updates = new LinkedHashMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            changesByUser.forEach((userId, changes) ->
+                    updates.put(userId, executor.submit(() -> userMetaService.get().addToTaskSummary(userId, changes))));
+        }
+
+        Set<String> failed = new LinkedHashSet<>();
+        updates.forEach((userId, update) -> {
+            if (!await(update)) {
+                failed.add(userId);
+            }
+        });
+        return failed;
+    }
+
+    /**
+     * Recounts the summary of a user with no task write in the last RECONCILE_QUIET_MILLIS and
+     * writes it back if it differs. Returns whether it was corrected.
+     */
+    public boolean reconcileTaskSummary(String userId, long now) {
+        for (int attempt = 0; attempt < MAX_RECONCILE_ATTEMPTS; attempt++) {
+            UserMetaService.SummaryState current = userMetaService.get().getSummaryState(userId);
+            if (current.listUpdatedAt() > now - RECONCILE_QUIET_MILLIS) {
+                return false;
+            }
+            TaskSummary counted = TaskSummary.of(taskRepository.get().getTaskStatesForUser(userId),
+                    TaskSummary.windowStart(now), TaskSummary.windowEnd(now));
+            if (counted.sameCounts(current.summary())) {
+                return false;
+            }
+            if (userMetaService.get().replaceTaskSummary(userId, current, counted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Task newTask(String userId, CreateTaskRequest request) {
         Task task = new Task();
         task.setUserId(userId);
         task.setTaskId(UUID.randomUUID().toString());
@@ -26,59 +142,378 @@ public class TaskService {
         task.setCompleted(false);
         task.setDeadline(request.deadline());
         task.setCreatedAt(System.currentTimeMillis());
-
-        dynamoDBService.saveTask(task);
+        task.setVersion(1);
+        task.setDeadlineBucket(DeadlineBuckets.bucketFor(task, task.getCreatedAt()));
         return task;
     }
 
-    public List<Task> getTasks(String userId) {
-        return dynamoDBService.getTasksForUser(userId);
+    public TaskPageResponse getTasks(String userId, ListTasksRequest request) {
+        return taskRepository.get().getTasksForUser(userId, request);
     }
 
     public Task updateTask(String userId, String taskId, UpdateTaskRequest request) {
-        Task existingTask = dynamoDBService.getTask(userId, taskId);
-        if (existingTask == null) {
+        long now = System.currentTimeMillis();
+        Task updatedTask = taskRepository.get().updateTask(userId, taskId, request, now);
+        if (updatedTask == null) {
             return null;
         }
 
-        if (request.title() != null) {
-            existingTask.setTitle(request.title());
+        Long deadlineBucket = DeadlineBuckets.bucketFor(updatedTask, now);
+        if (!Objects.equals(deadlineBucket, updatedTask.getDeadlineBucket())) {
+            taskRepository.get().setDeadlineBucket(userId, taskId, deadlineBucket, updatedTask.getVersion());
+            updatedTask.setDeadlineBucket(deadlineBucket);
+        }
+        userMetaService.get().bumpListVersion(userId);
+        return updatedTask;
+    }
+
+    public boolean deleteTask(String userId, String taskId, Long expectedVersion) {
+        if (taskRepository.get().deleteTask(userId, taskId, expectedVersion) == null) {
+            return false;
+        }
+        userMetaService.get().bumpListVersion(userId);
+        return true;
+    }
+
+    /**
+     * Creates the tasks with BatchWriteItem, 25 per call, and reports each one as created or failed.
+     */
+    public List<BatchTaskResult> createTasks(String userId, List<CreateTaskRequest> requests) {
+        checkBulkSize(requests.size());
+        List<Task> tasks = requests.stream().map(request -> newTask(userId, request)).toList();
+
+        Set<String> unprocessed = new HashSet<>();
+        for (List<Task> chunk : chunks(tasks, TaskRepository.MAX_BATCH_WRITE_ITEMS)) {
+            try {
+                taskRepository.get().saveTasks(chunk).forEach(task -> unprocessed.add(task.getTaskId()));
+            } catch (RuntimeException e) {
+                chunk.forEach(task -> unprocessed.add(task.getTaskId()));
+            }
         }
-        if (request.description() != null) {
-            existingTask.setDescription(request.description());
+        if (unprocessed.size() < tasks.size()) {
+            userMetaService.get().bumpListVersion(userId);
         }
-        if (request.completed() != null) {
-            existingTask.setCompleted(request.completed());
+
+        return tasks.stream()
+                .map(task -> unprocessed.contains(task.getTaskId())
+                        ? BatchTaskResult.of(task.getTaskId(), BatchTaskResult.FAILED)
+                        : BatchTaskResult.of(task, BatchTaskResult.CREATED))
+                .toList();
+    }
+
+    /**
+     * Deletes the tasks with BatchWriteItem, 25 per call, and reports each one as deleted or failed.
+     * Unlike deleteTask this is unconditional, so IDs that do not exist are reported as deleted.
+     */
+    public List<BatchTaskResult> deleteTasks(String userId, List<String> taskIds) {
+        List<String> uniqueTaskIds = List.copyOf(new LinkedHashSet<>(taskIds));
+        checkBulkSize(uniqueTaskIds.size());
+
+        Set<String> unprocessed = new HashSet<>();
+        for (List<String> chunk : chunks(uniqueTaskIds, TaskRepository.MAX_BATCH_WRITE_ITEMS)) {
+            try {
+                unprocessed.addAll(taskRepository.get().deleteTasks(userId, chunk));
+            } catch (RuntimeException e) {
+                unprocessed.addAll(chunk);
+            }
         }
-        if (request.deadline() != null) {
-            existingTask.setDeadline(request.deadline());
+        if (unprocessed.size() < uniqueTaskIds.size()) {
+            userMetaService.get().bumpListVersion(userId);
         }
 
-        dynamoDBService.updateTask(existingTask);
-        return existingTask;
+        return uniqueTaskIds.stream()
+                .map(taskId -> BatchTaskResult.of(taskId,
+                        unprocessed.contains(taskId) ? BatchTaskResult.FAILED : BatchTaskResult.DELETED))
+                .toList();
     }
 
-    public boolean deleteTask(String userId, String taskId) {
-        Task task = dynamoDBService.getTask(userId, taskId);
-        if (task == null) {
-            return false;
+    /**
+     * Reads the tasks with BatchGetItem, 100 per call, and reports each one as found, not found or failed.
+     */
+    public List<BatchTaskResult> getTasksByIds(String userId, List<String> taskIds) {
+        List<String> uniqueTaskIds = List.copyOf(new LinkedHashSet<>(taskIds));
+        checkBulkSize(uniqueTaskIds.size());
+
+        Map<String, Task> found = new HashMap<>();
+        Set<String> failed = new HashSet<>();
+        for (List<String> chunk : chunks(uniqueTaskIds, TaskRepository.MAX_BATCH_GET_KEYS)) {
+            List<Task> keys = chunk.stream().map(taskId -> keyOf(userId, taskId)).toList();
+            try {
+                taskRepository.get().getTasks(keys).forEach(task -> found.put(task.getTaskId(), task));
+            } catch (RuntimeException e) {
+                failed.addAll(chunk);
+            }
         }
-        dynamoDBService.deleteTask(userId, taskId);
-        return true;
+
+        return uniqueTaskIds.stream()
+                .map(taskId -> {
+                    if (failed.contains(taskId)) {
+                        return BatchTaskResult.of(taskId, BatchTaskResult.FAILED);
+                    }
+                    Task task = found.get(taskId);
+                    return task != null
+                            ? BatchTaskResult.of(task, BatchTaskResult.FOUND)
+                            : BatchTaskResult.of(taskId, BatchTaskResult.NOT_FOUND);
+                })
+                .toList();
+    }
+
+    private static void checkBulkSize(int size) {
+        if (size == 0 || size > MAX_BULK_ITEMS) {
+            throw new IllegalArgumentException("A bulk request must contain between 1 and " + MAX_BULK_ITEMS + " tasks");
+        }
+    }
+
+    private static <T> List<List<T>> chunks(List<T> items, int size) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += size) {
+            chunks.add(items.subList(i, Math.min(i + size, items.size())));
+        }
+        return chunks;
+    }
+
+    private static Task keyOf(String userId, String taskId) {
+        Task key = new Task();
+        key.setUserId(userId);
+        key.setTaskId(taskId);
+        return key;
+    }
+
+    /*
+     * Non-blocking variants of the operations above. They issue the same requests through the
+     * async clients, so a handler can start several of them and join once.
+     */
+
+    public CompletableFuture<Task> createTaskAsync(String userId, CreateTaskRequest request) {
+        Task task = newTask(userId, request);
+        return asyncDynamoDBService.get().saveTask(task)
+                .thenCompose(ignored -> userMetaService.get().bumpListVersionAsync(userId))
+                .thenApply(ignored -> task);
+    }
+
+    public CompletableFuture<TaskPageResponse> getTasksAsync(String userId, ListTasksRequest request) {
+        return asyncDynamoDBService.get().getTasksForUser(userId, request);
+    }
+
+    public CompletableFuture<Task> updateTaskAsync(String userId, String taskId, UpdateTaskRequest request) {
+        long now = System.currentTimeMillis();
+        return asyncDynamoDBService.get().updateTask(userId, taskId, request, now)
+                .thenCompose(updatedTask -> {
+                    if (updatedTask == null) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+
+                    CompletableFuture<Long> listVersion = userMetaService.get().bumpListVersionAsync(userId);
+                    Long deadlineBucket = DeadlineBuckets.bucketFor(updatedTask, now);
+                    if (Objects.equals(deadlineBucket, updatedTask.getDeadlineBucket())) {
+                        return listVersion.thenApply(ignored -> updatedTask);
+                    }
+                    updatedTask.setDeadlineBucket(deadlineBucket);
+                    return asyncDynamoDBService.get()
+                            .setDeadlineBucket(userId, taskId, deadlineBucket, updatedTask.getVersion())
+                            .thenCombine(listVersion, (ignored, version) -> updatedTask);
+                });
+    }
+
+    public CompletableFuture<Boolean> deleteTaskAsync(String userId, String taskId, Long expectedVersion) {
+        return asyncDynamoDBService.get().deleteTask(userId, taskId, expectedVersion)
+                .thenCompose(deletedTask -> deletedTask == null
+                        ? CompletableFuture.completedFuture(false)
+                        : userMetaService.get().bumpListVersionAsync(userId).thenApply(ignored -> true));
+    }
+
+    public CompletableFuture<Void> processTaskExpiryAsync(Task task) {
+        return asyncDynamoDBService.get().getTask(task.getUserId(), task.getTaskId())
+                .thenCompose(currentTaskState -> currentTaskState != null && !currentTaskState.isCompleted()
+                        ? asyncNotificationService.get().sendTaskExpiryNotification(currentTaskState)
+                        : CompletableFuture.completedFuture(null));
+    }
+
+    public CompletableFuture<Void> scheduleExpiryCheckAsync(Task task) {
+        if (needsImmediateExpiryCheck(task, System.currentTimeMillis())) {
+            return asyncNotificationService.get().scheduleTaskForExpiryCheck(task);
+        }
+        return CompletableFuture.completedFuture(null);
     }
 
     public void processTaskExpiry(Task task) {
-        Task currentTaskState = dynamoDBService.getTask(task.getUserId(), task.getTaskId());
+        Task currentTaskState = taskRepository.get().getTask(task.getUserId(), task.getTaskId());
 
         if (currentTaskState != null && !currentTaskState.isCompleted()) {
-            notificationService.sendTaskExpiryNotification(currentTaskState);
+            notificationService.get().sendTaskExpiryNotification(currentTaskState);
+        }
+    }
+
+    /**
+     * Batch form of processTaskExpiry, sending each user one digest of their tasks that are still
+     * open. Returns the tasks that could not be processed.
+     */
+    public List<Task> processTaskExpiries(List<Task> tasks) {
+        List<Task> failed = new ArrayList<>();
+        Map<String, Task> currentStates = new HashMap<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<List<Task>> chunks = new ArrayList<>();
+            List<Future<List<Task>>> lookups = new ArrayList<>();
+            for (int i = 0; i < tasks.size(); i += TaskRepository.MAX_BATCH_GET_KEYS) {
+                List<Task> chunk = tasks.subList(i, Math.min(i + TaskRepository.MAX_BATCH_GET_KEYS, tasks.size()));
+                chunks.add(chunk);
+                lookups.add(executor.submit(() -> taskRepository.get().getTasks(chunk)));
+            }
+            for (int i = 0; i < lookups.size(); i++) {
+                if (await(lookups.get(i))) {
+                    lookups.get(i).resultNow().forEach(task -> currentStates.put(taskKey(task), task));
+                } else {
+                    failed.addAll(chunks.get(i));
+                }
+            }
+        }
+
+        // The same task can be queued more than once; it is listed once and retried for every message.
+        Map<String, List<Task>> dueTasks = new LinkedHashMap<>();
+        for (Task task : tasks) {
+            Task currentTaskState = currentStates.get(taskKey(task));
+            if (currentTaskState != null && !currentTaskState.isCompleted()) {
+                dueTasks.computeIfAbsent(taskKey(task), key -> new ArrayList<>()).add(task);
+            }
+        }
+        List<Task> digestTasks = dueTasks.keySet().stream().map(currentStates::get).toList();
+        for (Task task : notificationService.get().sendTaskExpiryDigests(digestTasks)) {
+            failed.addAll(dueTasks.get(taskKey(task)));
         }
+        return failed;
     }
 
+    /**
+     * Queues an immediate expiry check for a task written with a deadline already in the past.
+     * Throws if the check could not be queued.
+     */
     public void scheduleExpiryCheck(Task task) {
-        if (task.getDeadline() > 0) {
-            notificationService.scheduleTaskForExpiryCheck(task);
+        if (needsImmediateExpiryCheck(task, System.currentTimeMillis())) {
+            notificationService.get().scheduleTaskForExpiryCheck(task);
         }
     }
-}
 
+    /**
+     * Batch form of scheduleExpiryCheck. Returns the tasks that could not be queued.
+     */
+    public List<Task> scheduleExpiryChecks(List<Task> tasks) {
+        long now = System.currentTimeMillis();
+        List<Task> dueTasks = tasks.stream()
+                .filter(task -> needsImmediateExpiryCheck(task, now))
+                .toList();
+        return notificationService.get().scheduleTasksForExpiryCheck(dueTasks);
+    }
+
+    /**
+     * Claims and queues an expiry check for each open task the sweeps missed, putting back any
+     * claim it could not queue. Returns the number of tasks queued.
+     */
+    public int rescheduleMissedExpiries(List<Task> tasks, long now) {
+        List<Task> claimed = new ArrayList<>();
+        Map<Task, Long> claimedBuckets = new IdentityHashMap<>();
+        List<Task> failed = claimed;
+        try {
+            for (Task task : tasks) {
+                Long bucket = task.getDeadlineBucket();
+                if (bucket != null && !task.isCompleted() && task.getDeadline() <= now) {
+                    Task current = taskRepository.get().claimDueTask(task.getUserId(), task.getTaskId(), bucket);
+                    if (current != null) {
+                        claimed.add(current);
+                        claimedBuckets.put(current, bucket);
+                    }
+                }
+            }
+            failed = claimed.isEmpty() ? List.of() : scheduleExpiryChecks(claimed);
+        } finally {
+            for (Task task : failed) {
+                taskRepository.get().restoreDeadlineBucket(task.getUserId(), task.getTaskId(), claimedBuckets.get(task));
+            }
+        }
+        return claimed.size() - failed.size();
+    }
+
+    /**
+     * Stops any pending expiry notification for a task that has been completed.
+     * Deleted tasks need no cancellation since deleting the item removes it from the index.
+     */
+    public void cancelExpiryCheck(Task task) {
+        if (task.isCompleted() && task.getDeadlineBucket() != null) {
+            taskRepository.get().clearDeadlineBucket(task.getUserId(), task.getTaskId());
+        }
+    }
+
+    private static boolean needsImmediateExpiryCheck(Task task, long now) {
+        return task.getDeadline() > 0 && !task.isCompleted() && task.getDeadline() <= now;
+    }
+
+    /**
+     * Claims the tasks due in the last lookbackMinutes buckets and sends each user one digest of
+     * them. Tasks whose digest could not be sent go back into their bucket.
+     */
+    public SweepResult sweepDueTasks(long now, int lookbackMinutes) {
+        long currentBucket = DeadlineBuckets.bucketOf(now);
+        Map<Long, List<Task>> claimedByBucket = new LinkedHashMap<>();
+        List<Future<?>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long bucket = currentBucket - lookbackMinutes; bucket <= currentBucket; bucket++) {
+                long dueBucket = bucket;
+                List<Task> bucketClaims = new ArrayList<>();
+                claimedByBucket.put(dueBucket, bucketClaims);
+                results.add(executor.submit(() -> claimDueTasks(dueBucket, now, bucketClaims)));
+            }
+        }
+
+        int failedBuckets = 0;
+        for (Future<?> result : results) {
+            if (!await(result)) {
+                failedBuckets++;
+            }
+        }
+        List<Task> claimed = new ArrayList<>();
+        Map<Task, Long> claimedBuckets = new IdentityHashMap<>();
+        claimedByBucket.forEach((bucket, tasks) -> tasks.forEach(task -> {
+            claimed.add(task);
+            claimedBuckets.put(task, bucket);
+        }));
+
+        List<Task> failed = claimed;
+        try {
+            failed = claimed.isEmpty() ? List.of() : notificationService.get().sendTaskExpiryDigests(claimed);
+        } finally {
+            for (Task task : failed) {
+                taskRepository.get().restoreDeadlineBucket(task.getUserId(), task.getTaskId(), claimedBuckets.get(task));
+            }
+        }
+        return new SweepResult(claimed.size() - failed.size(), failed.size(), failedBuckets);
+    }
+
+    private static boolean await(Future<?> future) {
+        try {
+            future.get();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    private static String taskKey(Task task) {
+        return task.getUserId() + "#" + task.getTaskId();
+    }
+
+    /**
+     * Claims the due tasks of one bucket into claimed, which keeps the claims made so far if a
+     * later one throws. The tasks not claimed were already claimed, completed or deleted.
+     */
+    private void claimDueTasks(long bucket, long now, List<Task> claimed) {
+        for (Task dueTask : taskRepository.get().getTasksDueInBucket(bucket, now)) {
+            Task task = taskRepository.get().claimDueTask(dueTask.getUserId(), dueTask.getTaskId(), bucket);
+            if (task != null) {
+                claimed.add(task);
+            }
+        }
+    }
+}
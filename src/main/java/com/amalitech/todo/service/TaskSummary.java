@@ -0,0 +1,252 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.model.Task;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The counters behind GET /tasks/summary, kept on the user's UserMetaTable item. Open tasks are
+ * counted per quarter-hour slot from dueFrom up to dueUntil; those due earlier in openDueBeforeWindow.
+ */
+public record TaskSummary(
+        long open,
+        long completed,
+        long openDueBeforeWindow,
+        Map<Long, Long> openDueBySlot,
+        long dueFrom,
+        long dueUntil,
+        long version
+) {
+    public static final long SLOT_MILLIS = 15 * 60_000L;
+
+    static final String OPEN = "openTasks";
+    static final String COMPLETED = "completedTasks";
+    static final String VERSION = "summaryVersion";
+    private static final String OPEN_DUE_BEFORE_WINDOW = "openDueBeforeWindow";
+    private static final String DUE_FROM = "dueFromSlot";
+    private static final String DUE_UNTIL = "dueUntilSlot";
+    private static final String DUE_PREFIX = "openDue_";
+
+    private static final long DAY_MILLIS = 24 * 60 * 60_000L;
+    // How far ahead of a reconciliation slots are kept; it runs weekly, so this leaves a spare run.
+    private static final long WINDOW_AHEAD_MILLIS = 14 * DAY_MILLIS;
+
+    public static final TaskSummary EMPTY = new TaskSummary(0, 0, 0, Map.of(), Long.MIN_VALUE, Long.MAX_VALUE, 0);
+
+    /**
+     * The change to a user's summary from one stream record, identified by the record's eventID,
+     * in the form of attribute deltas.
+     */
+    public record Change(String eventId, Map<String, Long> delta) {}
+
+    public TaskSummary {
+        openDueBySlot = Map.copyOf(openDueBySlot);
+    }
+
+    /**
+     * The first slot the window should start at now: every earlier slot ended a day ago or more,
+     * so it lies before the start of the day in any UTC offset.
+     */
+    static long windowStart(long now) {
+        return Math.floorDiv(now - DAY_MILLIS, SLOT_MILLIS);
+    }
+
+    /**
+     * The slot the window should end at now.
+     */
+    static long windowEnd(long now) {
+        return Math.floorDiv(now + WINDOW_AHEAD_MILLIS, SLOT_MILLIS);
+    }
+
+    /**
+     * Whether the window holds every slot of the day that is current at now in any UTC offset.
+     */
+    public boolean covers(long now) {
+        return dueFrom <= windowStart(now) && Math.floorDiv(now + DAY_MILLIS, SLOT_MILLIS) <= dueUntil;
+    }
+
+    /**
+     * Open tasks due before time, a slot boundary in the window.
+     */
+    public long openDueBefore(long time) {
+        return openDueBeforeWindow + openDueBetween(Long.MIN_VALUE, time);
+    }
+
+    /**
+     * Open tasks due at or after from and before to; both must be slot boundaries in the window.
+     */
+    public long openDueBetween(long from, long to) {
+        long count = 0;
+        for (Map.Entry<Long, Long> slot : openDueBySlot.entrySet()) {
+            long start = slot.getKey() * SLOT_MILLIS;
+            if (start >= from && start < to) {
+                count += slot.getValue();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Whether the counts and the window agree, whatever the version.
+     */
+    public boolean sameCounts(TaskSummary other) {
+        return toAttributes().equals(other.toAttributes());
+    }
+
+    /**
+     * This summary with its window started no earlier than windowStart(now), the slots before
+     * folded into openDueBeforeWindow. One never written gets an end too, having no slots beyond it.
+     */
+    TaskSummary movedOn(long now) {
+        long from = Math.max(dueFrom, windowStart(now));
+        long until = version == 0 && dueUntil == Long.MAX_VALUE ? windowEnd(now) : dueUntil;
+        Map<String, Long> attributes = new HashMap<>();
+        openDueBySlot.forEach((slot, count) -> add(attributes, slotAttribute(slot), count, from, until));
+        attributes.merge(OPEN_DUE_BEFORE_WINDOW, openDueBeforeWindow, Long::sum);
+        attributes.put(OPEN, open);
+        attributes.put(COMPLETED, completed);
+        return fromAttributes(attributes, from, until, version);
+    }
+
+    /**
+     * This summary with the deltas added and the version bumped, each slot delta going to
+     * openDueBeforeWindow, its slot or nowhere depending on where the slot lies from the window.
+     */
+    TaskSummary plus(Map<String, Long> delta) {
+        Map<String, Long> attributes = counters();
+        delta.forEach((attribute, count) -> add(attributes, attribute, count, dueFrom, dueUntil));
+        return fromAttributes(attributes, dueFrom, dueUntil, version + 1);
+    }
+
+    /**
+     * Counts a user's tasks from scratch, keeping every slot.
+     */
+    public static TaskSummary of(Collection<Task> tasks) {
+        return of(tasks, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Counts a user's tasks from scratch into the window from dueFrom up to dueUntil.
+     */
+    public static TaskSummary of(Collection<Task> tasks, long dueFrom, long dueUntil) {
+        Map<String, Long> attributes = new HashMap<>();
+        for (Task task : tasks) {
+            contribution(task).forEach((attribute, count) -> add(attributes, attribute, count, dueFrom, dueUntil));
+        }
+        return fromAttributes(attributes, dueFrom, dueUntil, 0);
+    }
+
+    /**
+     * The attribute deltas that take a summary from counting oldTask to counting newTask, either of
+     * which is null for an insert or a delete; plus places slot deltas in the window. Empty when the
+     * change does not affect the summary.
+     */
+    public static Map<String, Long> delta(Task oldTask, Task newTask) {
+        Map<String, Long> delta = new HashMap<>();
+        if (newTask != null) {
+            contribution(newTask).forEach((attribute, count) -> delta.merge(attribute, count, Long::sum));
+        }
+        if (oldTask != null) {
+            contribution(oldTask).forEach((attribute, count) -> delta.merge(attribute, -count, Long::sum));
+        }
+        delta.values().removeIf(count -> count == 0);
+        return delta;
+    }
+
+    private static Map<String, Long> contribution(Task task) {
+        if (task.isCompleted()) {
+            return Map.of(COMPLETED, 1L);
+        }
+        if (task.getDeadline() <= 0) {
+            return Map.of(OPEN, 1L);
+        }
+        return Map.of(OPEN, 1L, slotAttribute(Math.floorDiv(task.getDeadline(), SLOT_MILLIS)), 1L);
+    }
+
+    private static void add(Map<String, Long> attributes, String attribute, long count, long dueFrom, long dueUntil) {
+        if (isSlotAttribute(attribute)) {
+            long slot = Long.parseLong(attribute.substring(DUE_PREFIX.length()));
+            if (slot >= dueUntil) {
+                return;
+            }
+            if (slot < dueFrom) {
+                attribute = OPEN_DUE_BEFORE_WINDOW;
+            }
+        }
+        attributes.merge(attribute, count, Long::sum);
+    }
+
+    /**
+     * Reads the summary attributes of a UserMetaTable item, EMPTY when it has none.
+     */
+    static TaskSummary fromItem(Map<String, AttributeValue> item) {
+        if (item == null || item.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, Long> attributes = new HashMap<>();
+        item.forEach((attribute, value) -> {
+            if (value.n() != null && (isSlotAttribute(attribute) || OPEN.equals(attribute) || COMPLETED.equals(attribute)
+                    || OPEN_DUE_BEFORE_WINDOW.equals(attribute))) {
+                attributes.put(attribute, Long.parseLong(value.n()));
+            }
+        });
+        return fromAttributes(attributes,
+                numberOf(item, DUE_FROM, Long.MIN_VALUE),
+                numberOf(item, DUE_UNTIL, Long.MAX_VALUE),
+                numberOf(item, VERSION, 0));
+    }
+
+    private static long numberOf(Map<String, AttributeValue> item, String attribute, long absent) {
+        AttributeValue value = item.get(attribute);
+        return value != null ? Long.parseLong(value.n()) : absent;
+    }
+
+    /**
+     * Empty slots are left out, so the write that stores the summary removes them.
+     */
+    private static TaskSummary fromAttributes(Map<String, Long> attributes, long dueFrom, long dueUntil, long version) {
+        Map<Long, Long> slots = new TreeMap<>();
+        attributes.forEach((attribute, count) -> {
+            if (isSlotAttribute(attribute) && count != 0) {
+                slots.put(Long.parseLong(attribute.substring(DUE_PREFIX.length())), count);
+            }
+        });
+        return new TaskSummary(attributes.getOrDefault(OPEN, 0L), attributes.getOrDefault(COMPLETED, 0L),
+                attributes.getOrDefault(OPEN_DUE_BEFORE_WINDOW, 0L), slots, dueFrom, dueUntil, version);
+    }
+
+    private Map<String, Long> counters() {
+        Map<String, Long> counters = new HashMap<>();
+        counters.put(OPEN, open);
+        counters.put(COMPLETED, completed);
+        counters.put(OPEN_DUE_BEFORE_WINDOW, openDueBeforeWindow);
+        openDueBySlot.forEach((slot, count) -> counters.put(slotAttribute(slot), count));
+        return counters;
+    }
+
+    /**
+     * The summary as UserMetaTable attributes, without the version. Unset window bounds are left out.
+     */
+    Map<String, Long> toAttributes() {
+        Map<String, Long> attributes = counters();
+        if (dueFrom != Long.MIN_VALUE) {
+            attributes.put(DUE_FROM, dueFrom);
+        }
+        if (dueUntil != Long.MAX_VALUE) {
+            attributes.put(DUE_UNTIL, dueUntil);
+        }
+        return attributes;
+    }
+
+    static String slotAttribute(long slot) {
+        return DUE_PREFIX + slot;
+    }
+
+    private static boolean isSlotAttribute(String attribute) {
+        return attribute.startsWith(DUE_PREFIX);
+    }
+}
@@ -0,0 +1,319 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.dto.request.ListTasksRequest;
+import com.amalitech.todo.dto.request.UpdateTaskRequest;
+import com.amalitech.todo.exception.TaskVersionConflictException;
+import com.amalitech.todo.model.Task;
+import com.amalitech.todo.model.TaskDescription;
+import com.amalitech.todo.model.TaskTableSchema;
+
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Builds the TaskTable requests shared by DynamoDBService and AsyncDynamoDBService, so the
+ * blocking and non-blocking paths issue exactly the same reads and writes.
+ */
+final class TaskTableRequests {
+
+    static final String TABLE_NAME = Objects.requireNonNullElse(System.getenv("TASKS_TABLE"), "TaskTable");
+    static final String USER_STATUS_DEADLINE_INDEX = "UserStatusDeadlineIndex";
+    static final String USER_STATUS = "userStatus";
+
+    private static final List<String> SUMMARY_ATTRIBUTES =
+            List.of("userId", "taskId", "title", "completed", "deadline", "createdAt", "version");
+
+    private TaskTableRequests() {
+    }
+
+    /**
+     * The index that serves the list request, or null for the table itself. Requests with a
+     * status go to UserStatusDeadlineIndex, where the deadline range is part of the key condition.
+     */
+    static String listIndex(ListTasksRequest request) {
+        return request.status() != null ? USER_STATUS_DEADLINE_INDEX : null;
+    }
+
+    /**
+     * Builds the query for a single page of the user's tasks, against listIndex(request). The cursor
+     * is the encoded lastEvaluatedKey of the previous page and must belong to the same user and
+     * status. Without a status, a deadline range can only be a filter, so DynamoDB still reads (and
+     * the page limit still counts) the tasks outside it.
+     */
+    static QueryEnhancedRequest listQuery(String userId, ListTasksRequest request) {
+        QueryEnhancedRequest.Builder queryRequest = QueryEnhancedRequest.builder()
+                .exclusiveStartKey(exclusiveStartKey(userId, request))
+                .limit(request.limit());
+        if (request.status() != null) {
+            String userStatus = Task.userStatusOf(userId, Task.STATUS_COMPLETED.equals(request.status()));
+            queryRequest.queryConditional(deadlineCondition(userStatus, request.dueAfter(), request.dueBefore()));
+        } else {
+            queryRequest.queryConditional(QueryConditional.keyEqualTo(Key.builder().partitionValue(userId).build()));
+            if (request.hasDeadlineRange()) {
+                queryRequest.filterExpression(deadlineFilter(request.dueAfter(), request.dueBefore()));
+            }
+        }
+        if (request.summaryOnly()) {
+            queryRequest.attributesToProject(SUMMARY_ATTRIBUTES);
+        }
+        return queryRequest.build();
+    }
+
+    /**
+     * Deadlines are whole milliseconds, so the exclusive upper bound becomes dueBefore - 1 where
+     * the key condition only offers inclusive comparisons.
+     */
+    private static QueryConditional deadlineCondition(String userStatus, Long dueAfter, Long dueBefore) {
+        if (dueAfter != null && dueBefore != null) {
+            return QueryConditional.sortBetween(deadlineKey(userStatus, dueAfter), deadlineKey(userStatus, dueBefore - 1));
+        }
+        if (dueAfter != null) {
+            return QueryConditional.sortGreaterThanOrEqualTo(deadlineKey(userStatus, dueAfter));
+        }
+        if (dueBefore != null) {
+            return QueryConditional.sortLessThan(deadlineKey(userStatus, dueBefore));
+        }
+        return QueryConditional.keyEqualTo(Key.builder().partitionValue(userStatus).build());
+    }
+
+    private static Key deadlineKey(String userStatus, long deadline) {
+        return Key.builder().partitionValue(userStatus).sortValue(deadline).build();
+    }
+
+    private static Expression deadlineFilter(Long dueAfter, Long dueBefore) {
+        Expression.Builder filter = Expression.builder().putExpressionName("#deadline", "deadline");
+        List<String> conditions = new ArrayList<>();
+        if (dueAfter != null) {
+            conditions.add("#deadline >= :dueAfter");
+            filter.putExpressionValue(":dueAfter", AttributeValue.fromN(Long.toString(dueAfter)));
+        }
+        if (dueBefore != null) {
+            conditions.add("#deadline < :dueBefore");
+            filter.putExpressionValue(":dueBefore", AttributeValue.fromN(Long.toString(dueBefore)));
+        }
+        return filter.expression(String.join(" AND ", conditions)).build();
+    }
+
+    /**
+     * Decodes a list cursor into the key to resume after, or null for the first page.
+     * Throws IllegalArgumentException if the cursor is malformed or belongs to another user, or
+     * to a list of another status: an index cursor carries the userStatus it was read from.
+     */
+    static Map<String, AttributeValue> exclusiveStartKey(String userId, ListTasksRequest request) {
+        Map<String, AttributeValue> exclusiveStartKey = TaskCursorCodec.decode(request.cursor());
+        if (exclusiveStartKey != null) {
+            AttributeValue cursorUserId = exclusiveStartKey.get("userId");
+            if (cursorUserId == null || !userId.equals(cursorUserId.s())) {
+                throw new IllegalArgumentException("Cursor does not belong to this user");
+            }
+            AttributeValue cursorUserStatus = exclusiveStartKey.get(USER_STATUS);
+            String expectedUserStatus = request.status() != null
+                    ? Task.userStatusOf(userId, Task.STATUS_COMPLETED.equals(request.status()))
+                    : null;
+            if (!Objects.equals(expectedUserStatus, cursorUserStatus != null ? cursorUserStatus.s() : null)) {
+                throw new IllegalArgumentException("Cursor does not belong to this list");
+            }
+        }
+        return exclusiveStartKey;
+    }
+
+    /**
+     * Builds a single conditional UpdateItem that applies the non-null fields of the request and
+     * bumps the version. The deadline bucket is derived from the request alone; when that depends on
+     * attributes the request does not carry (reopening without a new deadline, or a new deadline on
+     * a completed task) the caller corrects it from the returned task with setDeadlineBucket.
+     * A change of completed also moves the task to its new userStatus in UserStatusDeadlineIndex.
+     */
+    static UpdateItemRequest update(String userId, String taskId, UpdateTaskRequest request, long now) {
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        List<String> sets = new ArrayList<>();
+        List<String> removes = new ArrayList<>();
+
+        if (request.title() != null) {
+            sets.add(assign(names, values, "title", AttributeValue.fromS(request.title())));
+        }
+        if (request.description() != null) {
+            sets.add(assign(names, values, "description", TaskDescription.of(request.description()).toAttributeValue()));
+        }
+        if (request.completed() != null) {
+            sets.add(assign(names, values, "completed", AttributeValue.fromBool(request.completed())));
+            sets.add(assign(names, values, USER_STATUS, AttributeValue.fromS(Task.userStatusOf(userId, request.completed()))));
+        }
+        if (request.deadline() != null) {
+            sets.add(assign(names, values, "deadline", AttributeValue.fromN(Long.toString(request.deadline()))));
+        }
+
+        names.put("#deadlineBucket", "deadlineBucket");
+        if (Boolean.TRUE.equals(request.completed())
+                || (request.deadline() != null && request.deadline() <= now)) {
+            removes.add("#deadlineBucket");
+        } else if (request.deadline() != null) {
+            values.put(":deadlineBucket", AttributeValue.fromN(Long.toString(DeadlineBuckets.bucketOf(request.deadline()))));
+            sets.add("#deadlineBucket = :deadlineBucket");
+        } else {
+            names.remove("#deadlineBucket");
+        }
+
+        names.put("#version", "version");
+        values.put(":zero", AttributeValue.fromN("0"));
+        values.put(":one", AttributeValue.fromN("1"));
+        sets.add("#version = if_not_exists(#version, :zero) + :one");
+
+        String updateExpression = "SET " + String.join(", ", sets);
+        if (!removes.isEmpty()) {
+            updateExpression += " REMOVE " + String.join(", ", removes);
+        }
+
+        return UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(keyOf(userId, taskId))
+                .updateExpression(updateExpression)
+                .conditionExpression(existsCondition(names, values, request.version()))
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .returnValues(ReturnValue.ALL_NEW)
+                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                .build();
+    }
+
+    /**
+     * Sets or removes the deadline bucket of a task, provided it is still at the given version.
+     */
+    static UpdateItemRequest setDeadlineBucket(String userId, String taskId, Long bucket, long version) {
+        UpdateItemRequest.Builder request = UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(keyOf(userId, taskId))
+                .conditionExpression("version = :version");
+        if (bucket == null) {
+            request.updateExpression("REMOVE deadlineBucket")
+                    .expressionAttributeValues(Map.of(":version", AttributeValue.fromN(Long.toString(version))));
+        } else {
+            request.updateExpression("SET deadlineBucket = :bucket")
+                    .expressionAttributeValues(Map.of(
+                            ":bucket", AttributeValue.fromN(Long.toString(bucket)),
+                            ":version", AttributeValue.fromN(Long.toString(version))));
+        }
+        return request.build();
+    }
+
+    /**
+     * Builds the UpdateItem that gives a stored item the attributes the current code derives on
+     * every write: its userStatus, the deadline bucket of an open task that is still ahead, and the
+     * compressed form of a long description. Returns null when the item has them already.
+     * The update applies only at the version the item was read at, since any later write derived
+     * them itself. The version is not bumped: the task's content does not change.
+     */
+    static UpdateItemRequest migrate(Map<String, AttributeValue> item, long now) {
+        Task task = TaskTableSchema.INSTANCE.mapToItem(item);
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        List<String> sets = new ArrayList<>();
+
+        String userStatus = Task.userStatusOf(task.getUserId(), task.isCompleted());
+        AttributeValue storedUserStatus = item.get(USER_STATUS);
+        if (storedUserStatus == null || !userStatus.equals(storedUserStatus.s())) {
+            sets.add(assign(names, values, USER_STATUS, AttributeValue.fromS(userStatus)));
+        }
+        Long bucket = DeadlineBuckets.bucketFor(task, now);
+        if (bucket != null && !item.containsKey("deadlineBucket")) {
+            sets.add(assign(names, values, "deadlineBucket", AttributeValue.fromN(Long.toString(bucket))));
+        }
+        AttributeValue description = item.get("description");
+        if (description != null && description.s() != null) {
+            AttributeValue compressed = TaskDescription.of(description.s()).toAttributeValue();
+            if (compressed.b() != null) {
+                sets.add(assign(names, values, "description", compressed));
+            }
+        }
+
+        if (sets.isEmpty()) {
+            return null;
+        }
+        return UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(keyOf(task.getUserId(), task.getTaskId()))
+                .updateExpression("SET " + String.join(", ", sets))
+                .conditionExpression(existsCondition(names, values, task.getVersion()))
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .build();
+    }
+
+    /**
+     * Builds a single conditional DeleteItem that returns the deleted task. When expectedVersion is
+     * set, the delete only applies at that version.
+     */
+    static DeleteItemRequest delete(String userId, String taskId, Long expectedVersion) {
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        String condition = existsCondition(names, values, expectedVersion);
+
+        DeleteItemRequest.Builder request = DeleteItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(keyOf(userId, taskId))
+                .conditionExpression(condition)
+                .expressionAttributeNames(names)
+                .returnValues(ReturnValue.ALL_OLD)
+                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD);
+        if (!values.isEmpty()) {
+            request.expressionAttributeValues(values);
+        }
+        return request.build();
+    }
+
+    /**
+     * A failed condition means a version conflict when the item came back, and a missing task otherwise.
+     */
+    static void throwIfConflict(ConditionalCheckFailedException e, String taskId, Long expectedVersion) {
+        if (expectedVersion != null && e.hasItem() && !e.item().isEmpty()) {
+            throw new TaskVersionConflictException(taskId, expectedVersion);
+        }
+    }
+
+    static Map<String, AttributeValue> keyOf(String userId, String taskId) {
+        return Map.of(
+                "userId", AttributeValue.fromS(userId),
+                "taskId", AttributeValue.fromS(taskId));
+    }
+
+    private static String assign(Map<String, String> names, Map<String, AttributeValue> values,
+                                 String attribute, AttributeValue value) {
+        names.put("#" + attribute, attribute);
+        values.put(":" + attribute, value);
+        return "#" + attribute + " = :" + attribute;
+    }
+
+    /**
+     * Builds the condition shared by updates and deletes: the task exists and, when an expected
+     * version is given, is still at that version. Version 0 matches tasks written before versioning.
+     */
+    private static String existsCondition(Map<String, String> names, Map<String, AttributeValue> values,
+                                          Long expectedVersion) {
+        names.put("#taskId", "taskId");
+        if (expectedVersion == null) {
+            return "attribute_exists(#taskId)";
+        }
+
+        names.put("#version", "version");
+        if (expectedVersion == 0) {
+            return "attribute_exists(#taskId) AND attribute_not_exists(#version)";
+        }
+        values.put(":expectedVersion", AttributeValue.fromN(Long.toString(expectedVersion)));
+        return "attribute_exists(#taskId) AND #version = :expectedVersion";
+    }
+}
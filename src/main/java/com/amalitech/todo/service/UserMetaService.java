@@ -0,0 +1,397 @@
+package com.amalitech.todo.service;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Reads and writes the per-user item in UserMetaTable: the list version behind list ETags, the
+ * notification subscription and the TaskSummary.
+ */
+public class UserMetaService {
+
+    public static final String SUBSCRIPTION_QUEUED = "QUEUED";
+    public static final String SUBSCRIPTION_PENDING = "PENDING";
+    public static final String SUBSCRIPTION_SUBSCRIBED = "SUBSCRIBED";
+
+    /**
+     * The user's notification subscription. While QUEUED, arn still belongs to the previous email.
+     */
+    public record Subscription(String email, String arn, String status, long updatedAt) {}
+
+    /**
+     * A user's summary as reconciliation reads it, with the list version and listUpdatedAt, 0 when
+     * absent, which tell whether stream records of the user's writes may still be on their way.
+     */
+    public record SummaryState(TaskSummary summary, long listVersion, long listUpdatedAt) {}
+
+    private static final String TABLE_NAME = Objects.requireNonNullElse(System.getenv("USER_META_TABLE"), "UserMetaTable");
+    private static final String EVENT_MARKER_PREFIX = "streamEvent#";
+    // Markers outlive the stream's 24-hour retention, so any redelivered record still finds its own.
+    private static final long EVENT_MARKER_TTL_SECONDS = 48 * 60 * 60;
+    // A transaction holds at most 100 actions: the markers and the summary update.
+    private static final int MAX_CHANGES_PER_TRANSACTION = 99;
+    private static final int MAX_SUMMARY_ATTEMPTS = 5;
+    private static final long SUMMARY_BACKOFF_MILLIS = 50;
+
+    private final Supplier<DynamoDbClient> ddb;
+    private final Supplier<DynamoDbAsyncClient> asyncDdb;
+
+    public UserMetaService() {
+        this(ServiceRegistry::dynamoDbClient, ServiceRegistry::dynamoDbAsyncClient);
+    }
+
+    public UserMetaService(Supplier<DynamoDbClient> ddb, Supplier<DynamoDbAsyncClient> asyncDdb) {
+        this.ddb = ddb;
+        this.asyncDdb = asyncDdb;
+    }
+
+    /**
+     * Returns the user's current list version, 0 if their tasks have never changed.
+     * The read is strongly consistent so a 304 is never served right after a write.
+     */
+    public long getListVersion(String userId) {
+        GetItemRequest request = GetItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(keyOf(userId))
+                .projectionExpression("listVersion")
+                .consistentRead(true)
+                .build();
+        AttributeValue version = ddb.get().getItem(request).item().get("listVersion");
+        return version != null ? Long.parseLong(version.n()) : 0L;
+    }
+
+    public long bumpListVersion(String userId) {
+        return Long.parseLong(ddb.get().updateItem(bumpRequest(userId)).attributes().get("listVersion").n());
+    }
+
+    public CompletableFuture<Long> bumpListVersionAsync(String userId) {
+        return asyncDdb.get().updateItem(bumpRequest(userId))
+                .thenApply(response -> Long.parseLong(response.attributes().get("listVersion").n()));
+    }
+
+    /**
+     * Returns the user's subscription, or null if none was ever requested.
+     */
+    public Subscription getSubscription(String userId) {
+        GetItemRequest request = GetItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(keyOf(userId))
+                .projectionExpression("subscriptionEmail, subscriptionArn, subscriptionStatus, subscriptionUpdatedAt")
+                .build();
+        Map<String, AttributeValue> item = ddb.get().getItem(request).item();
+        if (item == null || !item.containsKey("subscriptionEmail")) {
+            return null;
+        }
+        AttributeValue arn = item.get("subscriptionArn");
+        AttributeValue updatedAt = item.get("subscriptionUpdatedAt");
+        return new Subscription(
+                item.get("subscriptionEmail").s(),
+                arn != null ? arn.s() : null,
+                item.get("subscriptionStatus").s(),
+                updatedAt != null ? Long.parseLong(updatedAt.n()) : 0L);
+    }
+
+    /**
+     * Marks a subscription to email as queued unless one is already subscribed, queued or pending
+     * for it. Returns false when there was nothing to do.
+     */
+    public boolean queueSubscription(String userId, String email, long now, long queuedAfter, long pendingAfter) {
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(keyOf(userId))
+                .updateExpression("SET subscriptionEmail = :email, subscriptionStatus = :queued, subscriptionUpdatedAt = :now")
+                .conditionExpression("attribute_not_exists(subscriptionEmail) OR subscriptionEmail <> :email"
+                        + " OR (subscriptionStatus = :queued AND subscriptionUpdatedAt < :queuedAfter)"
+                        + " OR (subscriptionStatus = :pending AND subscriptionUpdatedAt < :pendingAfter)")
+                .expressionAttributeValues(Map.of(
+                        ":email", AttributeValue.fromS(email),
+                        ":queued", AttributeValue.fromS(SUBSCRIPTION_QUEUED),
+                        ":now", AttributeValue.fromN(Long.toString(now)),
+                        ":queuedAfter", AttributeValue.fromN(Long.toString(queuedAfter)),
+                        ":pending", AttributeValue.fromS(SUBSCRIPTION_PENDING),
+                        ":pendingAfter", AttributeValue.fromN(Long.toString(pendingAfter))))
+                .build();
+        try {
+            ddb.get().updateItem(request);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Records the SNS subscription made for email with its status, PENDING or SUBSCRIBED, provided
+     * the user has not moved on to another email since. Returns false if they have.
+     */
+    public boolean completeSubscription(String userId, String email, String arn, String status, long now) {
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(keyOf(userId))
+                .updateExpression("SET subscriptionArn = :arn, subscriptionStatus = :status, subscriptionUpdatedAt = :now")
+                .conditionExpression("subscriptionEmail = :email")
+                .expressionAttributeValues(Map.of(
+                        ":arn", AttributeValue.fromS(arn),
+                        ":status", AttributeValue.fromS(status),
+                        ":now", AttributeValue.fromN(Long.toString(now)),
+                        ":email", AttributeValue.fromS(email)))
+                .build();
+        try {
+            ddb.get().updateItem(request);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the user's task summary, EMPTY if none was recorded yet.
+     */
+    public TaskSummary getTaskSummary(String userId) {
+        GetItemRequest request = GetItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(keyOf(userId))
+                .build();
+        return TaskSummary.fromItem(ddb.get().getItem(request).item());
+    }
+
+    /**
+     * Reads the user's summary consistently, with what replaceTaskSummary is conditional on.
+     */
+    public SummaryState getSummaryState(String userId) {
+        GetItemRequest request = GetItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(keyOf(userId))
+                .consistentRead(true)
+                .build();
+        Map<String, AttributeValue> item = ddb.get().getItem(request).item();
+        return new SummaryState(TaskSummary.fromItem(item), numberOf(item, "listVersion"), numberOf(item, "listUpdatedAt"));
+    }
+
+    /**
+     * Adds the deltas of a user's stream records to their summary, each record once by a marker
+     * item keyed by its eventID.
+     */
+    public void addToTaskSummary(String userId, List<TaskSummary.Change> changes) {
+        for (int from = 0; from < changes.size(); from += MAX_CHANGES_PER_TRANSACTION) {
+            addChunkToTaskSummary(userId, changes.subList(from, Math.min(changes.size(), from + MAX_CHANGES_PER_TRANSACTION)));
+        }
+    }
+
+    /**
+     * Reads the summary and writes it back with the deltas added, conditional on its version,
+     * retrying without the records that were applied already.
+     */
+    private void addChunkToTaskSummary(String userId, List<TaskSummary.Change> changes) {
+        List<TaskSummary.Change> pending = changes;
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            backoff(attempt);
+            Map<String, Long> delta = new HashMap<>();
+            pending.forEach(change -> change.delta().forEach((attribute, count) -> delta.merge(attribute, count, Long::sum)));
+            TaskSummary current = getSummaryState(userId).summary();
+            TaskSummary next = current.movedOn(System.currentTimeMillis()).plus(delta);
+            try {
+                ddb.get().transactWriteItems(summaryTransaction(userId, pending, current, next));
+                return;
+            } catch (TransactionCanceledException e) {
+                List<TaskSummary.Change> notApplied = notAppliedYet(pending, e);
+                if (attempt + 1 == MAX_SUMMARY_ATTEMPTS
+                        || (notApplied.size() == pending.size() && !isTransactionConflict(e) && !summaryChanged(pending, e))) {
+                    throw e;
+                }
+                pending = notApplied;
+            }
+        }
+    }
+
+    private static TransactWriteItemsRequest summaryTransaction(String userId, List<TaskSummary.Change> changes,
+                                                                TaskSummary current, TaskSummary next) {
+        AttributeValue expiresAt = AttributeValue.fromN(Long.toString(System.currentTimeMillis() / 1000 + EVENT_MARKER_TTL_SECONDS));
+        List<TransactWriteItem> items = new ArrayList<>();
+        for (TaskSummary.Change change : changes) {
+            items.add(TransactWriteItem.builder()
+                    .put(Put.builder()
+                            .tableName(TABLE_NAME)
+                            .item(Map.of(
+                                    "userId", AttributeValue.fromS(EVENT_MARKER_PREFIX + change.eventId()),
+                                    "expiresAt", expiresAt))
+                            .conditionExpression("attribute_not_exists(userId)")
+                            .build())
+                    .build());
+        }
+        UpdateItemRequest write = summaryWrite(userId, current, next, Map.of());
+        items.add(TransactWriteItem.builder()
+                .update(Update.builder()
+                        .tableName(write.tableName())
+                        .key(write.key())
+                        .updateExpression(write.updateExpression())
+                        .conditionExpression(write.conditionExpression())
+                        .expressionAttributeNames(write.expressionAttributeNames())
+                        .expressionAttributeValues(write.expressionAttributeValues())
+                        .build())
+                .build());
+        return TransactWriteItemsRequest.builder().transactItems(items).build();
+    }
+
+    /**
+     * The changes whose marker did not fail its condition, in the order of the cancellation
+     * reasons, which follow the order of the transaction's items.
+     */
+    private static List<TaskSummary.Change> notAppliedYet(List<TaskSummary.Change> changes, TransactionCanceledException e) {
+        List<CancellationReason> reasons = e.hasCancellationReasons() ? e.cancellationReasons() : List.of();
+        List<TaskSummary.Change> notApplied = new ArrayList<>();
+        for (int i = 0; i < changes.size(); i++) {
+            if (i >= reasons.size() || !"ConditionalCheckFailed".equals(reasons.get(i).code())) {
+                notApplied.add(changes.get(i));
+            }
+        }
+        return notApplied;
+    }
+
+    /**
+     * Whether the summary was written since it was read, failing the condition of the last item.
+     */
+    private static boolean summaryChanged(List<TaskSummary.Change> changes, TransactionCanceledException e) {
+        return e.hasCancellationReasons() && e.cancellationReasons().size() > changes.size()
+                && "ConditionalCheckFailed".equals(e.cancellationReasons().get(changes.size()).code());
+    }
+
+    /**
+     * Whether another transaction on the user's item cancelled this one, so it can be retried.
+     */
+    private static boolean isTransactionConflict(TransactionCanceledException e) {
+        return e.hasCancellationReasons() && e.cancellationReasons().stream()
+                .anyMatch(reason -> "TransactionConflict".equals(reason.code()));
+    }
+
+    /**
+     * Overwrites the user's summary with recounted values unless it or the user's tasks changed
+     * since current was read. Returns whether it did.
+     */
+    public boolean replaceTaskSummary(String userId, SummaryState current, TaskSummary replacement) {
+        try {
+            ddb.get().updateItem(summaryWrite(userId, current.summary(), replacement, Map.of("listVersion", current.listVersion())));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sets the attributes of next, removes those of current it lacks and bumps the version, if
+     * neither the version nor any of the counters in unchanged has moved since current was read.
+     */
+    private static UpdateItemRequest summaryWrite(String userId, TaskSummary current, TaskSummary next,
+                                                  Map<String, Long> unchanged) {
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        List<String> sets = new ArrayList<>();
+        List<String> removes = new ArrayList<>();
+        Map<String, Long> attributes = next.toAttributes();
+        attributes.forEach((attribute, count) -> {
+            String placeholder = "a" + names.size();
+            names.put("#" + placeholder, attribute);
+            values.put(":" + placeholder, AttributeValue.fromN(Long.toString(count)));
+            sets.add("#" + placeholder + " = :" + placeholder);
+        });
+        current.toAttributes().keySet().stream()
+                .filter(attribute -> !attributes.containsKey(attribute))
+                .forEach(attribute -> {
+                    String name = "#a" + names.size();
+                    names.put(name, attribute);
+                    removes.add(name);
+                });
+
+        names.put("#version", TaskSummary.VERSION);
+        values.put(":nextVersion", AttributeValue.fromN(Long.toString(current.version() + 1)));
+        sets.add("#version = :nextVersion");
+        List<String> conditions = new ArrayList<>();
+        conditions.add(unchanged("#version", ":version", current.version(), values));
+        unchanged.forEach((attribute, value) -> {
+            String placeholder = "c" + conditions.size();
+            names.put("#" + placeholder, attribute);
+            conditions.add(unchanged("#" + placeholder, ":" + placeholder, value, values));
+        });
+
+        String updateExpression = "SET " + String.join(", ", sets);
+        if (!removes.isEmpty()) {
+            updateExpression += " REMOVE " + String.join(", ", removes);
+        }
+        return UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(keyOf(userId))
+                .updateExpression(updateExpression)
+                .conditionExpression(String.join(" AND ", conditions))
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .build();
+    }
+
+    /**
+     * A condition that the counter still has the value read, 0 standing for never written.
+     */
+    private static String unchanged(String name, String placeholder, long value, Map<String, AttributeValue> values) {
+        if (value == 0) {
+            return "attribute_not_exists(" + name + ")";
+        }
+        values.put(placeholder, AttributeValue.fromN(Long.toString(value)));
+        return name + " = " + placeholder;
+    }
+
+    private static UpdateItemRequest bumpRequest(String userId) {
+        return UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(keyOf(userId))
+                .updateExpression("ADD listVersion :one SET listUpdatedAt = :now")
+                .expressionAttributeValues(Map.of(
+                        ":one", AttributeValue.fromN("1"),
+                        ":now", AttributeValue.fromN(Long.toString(System.currentTimeMillis()))))
+                .returnValues(ReturnValue.UPDATED_NEW)
+                .build();
+    }
+
+    private static long numberOf(Map<String, AttributeValue> item, String attribute) {
+        AttributeValue value = item != null ? item.get(attribute) : null;
+        return value != null ? Long.parseLong(value.n()) : 0L;
+    }
+
+    /**
+     * Sleeps before a retry: nothing before the first attempt, then SUMMARY_BACKOFF_MILLIS
+     * doubling per attempt, with jitter.
+     */
+    private static void backoff(int attempt) {
+        if (attempt == 0) {
+            return;
+        }
+        long delay = SUMMARY_BACKOFF_MILLIS << (attempt - 1);
+        try {
+            Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a summary update", e);
+        }
+    }
+
+    private static Map<String, AttributeValue> keyOf(String userId) {
+        return Map.of("userId", AttributeValue.fromS(userId));
+    }
+}
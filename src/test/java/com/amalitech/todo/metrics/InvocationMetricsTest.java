@@ -0,0 +1,123 @@
+package com.amalitech.todo.metrics;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the EMF log events InvocationMetrics writes, captured through setSink.
+ */
+class InvocationMetricsTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final Context CONTEXT = (Context) Proxy.newProxyInstance(
+            InvocationMetricsTest.class.getClassLoader(), new Class<?>[] {Context.class},
+            (proxy, method, args) -> method.getName().equals("getAwsRequestId") ? "request-1" : null);
+
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void captureEvents() {
+        InvocationMetrics.setSink(events::add);
+    }
+
+    @AfterEach
+    void turnMetricsOff() {
+        InvocationMetrics.setSink(null);
+    }
+
+    @Test
+    void writesOneEmfEventUnderTheOperationDimension() throws Exception {
+        InvocationMetrics metrics = InvocationMetrics.start("GET /tasks", CONTEXT);
+        metrics.count("CacheHits", 2);
+        metrics.count("CacheHits", 1);
+        metrics.recordCount("PageItems", 3);
+        metrics.recordCount("PageItems", 5);
+        metrics.close();
+
+        assertEquals(1, events.size());
+        JsonNode event = JSON.readTree(events.get(0));
+        JsonNode directive = event.path("_aws").path("CloudWatchMetrics").get(0);
+        assertEquals(JSON.readTree("[[\"Operation\"]]"), directive.path("Dimensions"));
+        assertEquals(List.of("ColdStart", "CacheHits", "PageItems", "Latency"), names(directive));
+        assertEquals("Count", directive.path("Metrics").get(1).path("Unit").asText());
+        assertEquals("Milliseconds", directive.path("Metrics").get(3).path("Unit").asText());
+        assertTrue(event.path("_aws").path("Timestamp").isNumber());
+
+        assertEquals("GET /tasks", event.path("Operation").asText());
+        assertEquals("request-1", event.path("RequestId").asText());
+        assertEquals(3.0, event.path("CacheHits").asDouble());
+        assertEquals(JSON.readTree("[3.0,5.0]"), event.path("PageItems"));
+        assertTrue(event.path("Latency").isNumber());
+    }
+
+    @Test
+    void spreadsMoreThanOneHundredValuesOverSeveralEvents() throws Exception {
+        InvocationMetrics metrics = InvocationMetrics.start("sweepDueTasks", CONTEXT);
+        for (int i = 0; i < 150; i++) {
+            metrics.recordCount("BucketTasks", i);
+        }
+        metrics.close();
+
+        assertEquals(2, events.size());
+        JsonNode first = JSON.readTree(events.get(0));
+        JsonNode second = JSON.readTree(events.get(1));
+        assertEquals(100, first.path("BucketTasks").size());
+        assertEquals(50, second.path("BucketTasks").size());
+        assertEquals(List.of("BucketTasks"), names(second.path("_aws").path("CloudWatchMetrics").get(0)));
+        assertEquals("sweepDueTasks", second.path("Operation").asText());
+    }
+
+    @Test
+    void countsFromThreadsStartedDuringTheInvocation() throws Exception {
+        InvocationMetrics metrics = InvocationMetrics.start("sweepDueTasks", CONTEXT);
+        Thread worker = Thread.ofVirtual().start(() -> InvocationMetrics.current().count("Notified", 1));
+        worker.join();
+        metrics.close();
+
+        assertEquals(1.0, JSON.readTree(events.get(0)).path("Notified").asDouble());
+    }
+
+    @Test
+    void stopsRecordingWhenClosed() {
+        InvocationMetrics metrics = InvocationMetrics.start("processStream", CONTEXT);
+        metrics.close();
+        metrics.count("AfterClose", 1);
+        metrics.close();
+
+        assertEquals(1, events.size());
+        assertFalse(events.get(0).contains("AfterClose"));
+        assertFalse(metrics.isRecording());
+        assertFalse(InvocationMetrics.current().isRecording());
+    }
+
+    @Test
+    void writesNothingWithoutASink() {
+        InvocationMetrics.setSink(null);
+
+        InvocationMetrics metrics = InvocationMetrics.start("GET /tasks", CONTEXT);
+        metrics.count("CacheHits", 1);
+        metrics.close();
+
+        assertFalse(metrics.isRecording());
+        assertTrue(events.isEmpty());
+    }
+
+    private static List<String> names(JsonNode directive) {
+        List<String> names = new ArrayList<>();
+        directive.path("Metrics").forEach(metric -> names.add(metric.path("Name").asText()));
+        return names;
+    }
+}
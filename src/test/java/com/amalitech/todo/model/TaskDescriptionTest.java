@@ -0,0 +1,117 @@
+package com.amalitech.todo.model;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Descriptions written compressed must read back as the text that was written, and items written
+ * before compression, or in a format this version does not know, must not be misread.
+ */
+class TaskDescriptionTest {
+
+    @Test
+    void descriptionAtTheThresholdStaysAString() {
+        String text = "a".repeat(TaskDescription.COMPRESSION_THRESHOLD);
+
+        AttributeValue stored = TaskDescription.of(text).toAttributeValue();
+
+        assertEquals(text, stored.s());
+        assertEquals(text, TaskDescription.fromAttributeValue(stored).text());
+    }
+
+    @Test
+    void descriptionAboveTheThresholdRoundTripsCompressed() {
+        String text = "Call the supplier about the delayed order. Ünïcode notes ✓ ".repeat(40);
+
+        TaskDescription written = TaskDescription.of(text);
+        AttributeValue stored = written.toAttributeValue();
+
+        assertTrue(written.isCompressed());
+        assertTrue(stored.b().asByteArray().length < text.getBytes(StandardCharsets.UTF_8).length);
+        assertEquals(text, TaskDescription.fromAttributeValue(stored).text());
+        assertEquals(text, TaskDescription.fromBinary(stored.b()).text());
+    }
+
+    @Test
+    void incompressibleDescriptionStaysAString() {
+        String text = incompressibleText();
+
+        TaskDescription written = TaskDescription.of(text);
+
+        assertTrue(text.getBytes(StandardCharsets.UTF_8).length > TaskDescription.COMPRESSION_THRESHOLD);
+        assertFalse(written.isCompressed());
+        assertEquals(text, written.toAttributeValue().s());
+    }
+
+    @Test
+    void legacyStringDescriptionReadsAndWritesBackUnchanged() {
+        AttributeValue legacy = AttributeValue.fromS("Long note written before compression. ".repeat(30));
+
+        TaskDescription read = TaskDescription.fromAttributeValue(legacy);
+
+        assertEquals(legacy.s(), read.text());
+        assertSame(legacy, read.toAttributeValue());
+    }
+
+    @Test
+    void unknownFormatMarkerIsRejected() {
+        byte[] stored = compressed();
+        stored[0] = 2;
+
+        TaskDescription read = TaskDescription.fromBinary(SdkBytes.fromByteArray(stored));
+
+        assertThrows(IllegalStateException.class, read::text);
+        assertThrows(IllegalStateException.class, TaskDescription.fromBinary(SdkBytes.fromByteArray(new byte[0]))::text);
+    }
+
+    @Test
+    void truncatedStreamIsRejected() {
+        byte[] stored = compressed();
+
+        TaskDescription read = TaskDescription.fromBinary(SdkBytes.fromByteArray(Arrays.copyOf(stored, stored.length / 2)));
+
+        assertThrows(IllegalStateException.class, read::text);
+    }
+
+    /**
+     * Text just over the threshold whose UTF-8 bytes take nearly every value equally often, which
+     * DEFLATE can only store as it is, adding its block header.
+     */
+    private static String incompressibleText() {
+        Random random = new Random(42);
+        List<String> chars = new ArrayList<>();
+        for (int i = 0; i < 2 * 128 + 1; i++) {
+            chars.add(Character.toString(i % 128));
+        }
+        for (int i = 0; i < 60; i++) {
+            chars.add(Character.toString(0x80 + random.nextInt(0x780)));
+        }
+        for (int i = 0; i < 32; i++) {
+            chars.add(Character.toString(0x800 + random.nextInt(0xD000)));
+        }
+        for (int i = 0; i < 10; i++) {
+            chars.add(Character.toString(0x10000 + random.nextInt(0x100000)));
+        }
+        Collections.shuffle(chars, random);
+        return String.join("", chars);
+    }
+
+    private static byte[] compressed() {
+        return TaskDescription.of("Review the quarterly figures with the team. ".repeat(40))
+                .toAttributeValue().b().asByteArray();
+    }
+}
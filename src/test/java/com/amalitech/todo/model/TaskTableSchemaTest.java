@@ -0,0 +1,98 @@
+package com.amalitech.todo.model;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.TableMetadata;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The generated TaskTableSchema must map exactly like the bean schema it replaces, or items written
+ * by one would read back differently through the other.
+ */
+class TaskTableSchemaTest {
+
+    private static final TableSchema<Task> BEAN_SCHEMA = TableSchema.fromBean(Task.class);
+    private static final TableSchema<Task> GENERATED_SCHEMA = TaskTableSchema.INSTANCE;
+
+    @Test
+    void writesTheSameItemAsTheBeanSchema() {
+        for (Task task : new Task[] {openTask(), completedTask(), longDescriptionTask()}) {
+            assertEquals(BEAN_SCHEMA.itemToMap(task, false), GENERATED_SCHEMA.itemToMap(task, false));
+            assertEquals(BEAN_SCHEMA.itemToMap(task, true), GENERATED_SCHEMA.itemToMap(task, true));
+        }
+    }
+
+    @Test
+    void readsBackWhatTheBeanSchemaWrote() {
+        for (Task task : new Task[] {openTask(), completedTask(), longDescriptionTask()}) {
+            Map<String, AttributeValue> item = BEAN_SCHEMA.itemToMap(task, true);
+
+            Task read = GENERATED_SCHEMA.mapToItem(item);
+
+            assertEquals(item, BEAN_SCHEMA.itemToMap(read, true));
+            assertEquals(task.getDescription(), read.getDescription());
+            assertEquals(task.getDeadlineBucket(), read.getDeadlineBucket());
+        }
+    }
+
+    @Test
+    void compressesLongDescriptionsLikeTheBeanSchema() {
+        Task task = longDescriptionTask();
+
+        AttributeValue description = GENERATED_SCHEMA.itemToMap(task, true).get("description");
+
+        assertNotNull(description.b());
+        assertNull(description.s());
+    }
+
+    @Test
+    void declaresTheSameKeysAndIndices() {
+        TableMetadata bean = BEAN_SCHEMA.tableMetadata();
+        TableMetadata generated = GENERATED_SCHEMA.tableMetadata();
+
+        assertEquals(bean.primaryPartitionKey(), generated.primaryPartitionKey());
+        assertEquals(bean.primarySortKey(), generated.primarySortKey());
+        assertEquals(BEAN_SCHEMA.attributeNames().stream().sorted().toList(),
+                GENERATED_SCHEMA.attributeNames().stream().sorted().toList());
+        for (String index : new String[] {"DeadlineBucketIndex", "UserStatusDeadlineIndex"}) {
+            assertEquals(bean.indexPartitionKey(index), generated.indexPartitionKey(index));
+            assertEquals(bean.indexSortKey(index), generated.indexSortKey(index));
+        }
+    }
+
+    private static Task openTask() {
+        Task task = new Task();
+        task.setUserId("2f1c7a4e-5b8d-4e0a-9c61-3d2b7f9e8a10");
+        task.setTaskId("00000001-4b7e-4c1a-8f3d-000000000001");
+        task.setTitle("Prepare the quarterly report");
+        task.setDescription("Collect the figures");
+        task.setCompleted(false);
+        task.setDeadline(1_900_000_000_000L);
+        task.setCreatedAt(1_700_000_000_000L);
+        task.setVersion(3);
+        task.setDeadlineBucket(1_900_000_000_000L / 60_000);
+        return task;
+    }
+
+    private static Task completedTask() {
+        Task task = openTask();
+        task.setTaskId("00000002-4b7e-4c1a-8f3d-000000000002");
+        task.setDescription(null);
+        task.setCompleted(true);
+        task.setDeadlineBucket(null);
+        return task;
+    }
+
+    private static Task longDescriptionTask() {
+        Task task = openTask();
+        task.setTaskId("00000003-4b7e-4c1a-8f3d-000000000003");
+        task.setDescription("Collect the figures from finance, draft the summary and send it for review. ".repeat(40));
+        return task;
+    }
+}
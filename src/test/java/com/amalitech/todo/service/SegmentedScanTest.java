@@ -0,0 +1,165 @@
+package com.amalitech.todo.service;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs SegmentedScan against a fake DynamoDbClient that serves each segment's items in pages,
+ * and checks that stopping or failing part way and resuming from the checkpoint covers every
+ * item exactly once.
+ */
+class SegmentedScanTest {
+
+    private static final int SEGMENTS = 3;
+    private static final int ITEMS_PER_SEGMENT = 250;
+
+    private final FakeScanClient client = new FakeScanClient(SEGMENTS, ITEMS_PER_SEGMENT);
+    private final SegmentedScan scan = new SegmentedScan(
+            new DynamoDBService(client), new CapacityLimiter(1_000_000), message -> { });
+    private final Map<String, Integer> seen = new ConcurrentHashMap<>();
+    private final MaintenanceAction countItems = page -> {
+        page.items().forEach(item -> seen.merge(item.get("taskId").s(), 1, Integer::sum));
+        return page.items().size();
+    };
+
+    @Test
+    void scansEveryItemOnceAndReportsEveryPage() {
+        List<ScanCheckpoint> checkpoints = new CopyOnWriteArrayList<>();
+
+        SegmentedScan.Result result = scan.run(countItems, ScanCheckpoint.start(SEGMENTS), checkpoints::add, () -> false);
+
+        assertEquals(SEGMENTS * ITEMS_PER_SEGMENT, result.scanned());
+        assertEquals(SEGMENTS * ITEMS_PER_SEGMENT, result.affected());
+        assertEquals(0, result.failedSegments());
+        assertTrue(result.checkpoint().isComplete());
+        assertEquals(SEGMENTS * 3, checkpoints.size());
+        assertEquals(result.checkpoint(), checkpoints.get(checkpoints.size() - 1));
+        assertEachItemSeenOnce();
+    }
+
+    @Test
+    void resumesAStoppedScanFromItsCheckpoint() {
+        List<ScanCheckpoint> checkpoints = new CopyOnWriteArrayList<>();
+
+        SegmentedScan.Result stopped = scan.run(countItems, ScanCheckpoint.start(SEGMENTS), checkpoints::add,
+                () -> checkpoints.size() >= 4);
+
+        assertFalse(stopped.checkpoint().isComplete());
+        assertEquals(0, stopped.failedSegments());
+        assertEquals(seen.size(), stopped.scanned());
+
+        SegmentedScan.Result resumed = scan.run(countItems, stopped.checkpoint(), checkpoint -> { }, () -> false);
+
+        assertTrue(resumed.checkpoint().isComplete());
+        assertEquals(SEGMENTS * ITEMS_PER_SEGMENT, stopped.scanned() + resumed.scanned());
+        assertEachItemSeenOnce();
+    }
+
+    @Test
+    void resumesAFailedSegmentFromItsLastPage() {
+        client.failOnce(1, 2);
+
+        SegmentedScan.Result failed = scan.run(countItems, ScanCheckpoint.start(SEGMENTS), checkpoint -> { }, () -> false);
+
+        assertEquals(1, failed.failedSegments());
+        assertEquals(Set.of(0, 2), failed.checkpoint().completed());
+        assertEquals(Set.of(1), failed.checkpoint().cursors().keySet());
+
+        SegmentedScan.Result resumed = scan.run(countItems, failed.checkpoint(), checkpoint -> { }, () -> false);
+
+        assertEquals(0, resumed.failedSegments());
+        assertTrue(resumed.checkpoint().isComplete());
+        assertEquals(ITEMS_PER_SEGMENT - 100, resumed.scanned());
+        assertEachItemSeenOnce();
+    }
+
+    private void assertEachItemSeenOnce() {
+        assertEquals(SEGMENTS * ITEMS_PER_SEGMENT, seen.size());
+        assertEquals(Set.of(1), new HashSet<>(seen.values()));
+    }
+
+    /**
+     * Serves a fixed set of items per segment, a page of at most the request's limit at a time,
+     * continuing after the exclusive start key. failOnce makes one page of one segment throw the
+     * first time it is requested.
+     */
+    private static final class FakeScanClient implements DynamoDbClient {
+        private final List<List<Map<String, AttributeValue>>> segments = new ArrayList<>();
+        private final Map<Integer, Integer> failures = new ConcurrentHashMap<>();
+
+        FakeScanClient(int totalSegments, int itemsPerSegment) {
+            for (int segment = 0; segment < totalSegments; segment++) {
+                List<Map<String, AttributeValue>> items = new ArrayList<>();
+                for (int i = 0; i < itemsPerSegment; i++) {
+                    items.add(Map.of(
+                            "userId", AttributeValue.fromS("user-" + segment),
+                            "taskId", AttributeValue.fromS(String.format("task-%d-%04d", segment, i)),
+                            "title", AttributeValue.fromS("Task " + i)));
+                }
+                segments.add(items);
+            }
+        }
+
+        /**
+         * Fails the given page (1-based) of the segment once.
+         */
+        void failOnce(int segment, int page) {
+            failures.put(segment, page);
+        }
+
+        @Override
+        public ScanResponse scan(ScanRequest request) {
+            List<Map<String, AttributeValue>> items = segments.get(request.segment());
+            int from = 0;
+            if (request.hasExclusiveStartKey()) {
+                String startTaskId = request.exclusiveStartKey().get("taskId").s();
+                while (!items.get(from).get("taskId").s().equals(startTaskId)) {
+                    from++;
+                }
+                from++;
+            }
+            Integer failingPage = failures.get(request.segment());
+            if (failingPage != null && from == (failingPage - 1) * request.limit()
+                    && failures.remove(request.segment(), failingPage)) {
+                throw ProvisionedThroughputExceededException.builder().message("Throttled").build();
+            }
+
+            int to = Math.min(items.size(), from + request.limit());
+            List<Map<String, AttributeValue>> page = items.subList(from, to);
+            ScanResponse.Builder response = ScanResponse.builder()
+                    .items(page)
+                    .consumedCapacity(ConsumedCapacity.builder().capacityUnits(page.size() * 0.5).build());
+            if (to < items.size()) {
+                Map<String, AttributeValue> last = page.get(page.size() - 1);
+                response.lastEvaluatedKey(Map.of("userId", last.get("userId"), "taskId", last.get("taskId")));
+            }
+            return response.build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "dynamodb";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The summary keeps slots only within its window, so the item stays bounded however long a user
+ * keeps tasks open, while overdue and due-today counts stay what counting the tasks would give.
+ */
+class TaskSummaryTest {
+
+    private static final long DAY = 24 * 60 * 60_000L;
+    private static final long NOW = 1_800_000_000_000L;
+
+    @Test
+    void movingOnFoldsSlotsBehindTheWindowIntoOneCounter() {
+        TaskSummary summary = TaskSummary.of(List.of(
+                openTask(NOW - 30 * DAY), openTask(NOW - 3 * DAY), openTask(NOW - 2 * DAY), openTask(NOW + DAY / 2)));
+
+        TaskSummary moved = summary.movedOn(NOW);
+
+        assertEquals(3, moved.openDueBeforeWindow());
+        assertEquals(Map.of(Math.floorDiv(NOW + DAY / 2, TaskSummary.SLOT_MILLIS), 1L), moved.openDueBySlot());
+        assertEquals(summary.openDueBefore(NOW), moved.openDueBefore(NOW));
+        assertEquals(4, moved.open());
+    }
+
+    @Test
+    void countingKeepsNoSlotsBeyondTheWindow() {
+        List<Task> tasks = List.of(openTask(NOW + 2 * 60 * 60_000L), openTask(NOW + 60 * DAY), openTask(NOW + 365 * DAY));
+
+        TaskSummary counted = TaskSummary.of(tasks, TaskSummary.windowStart(NOW), TaskSummary.windowEnd(NOW));
+
+        assertEquals(3, counted.open());
+        assertEquals(1, counted.openDueBySlot().size());
+        assertEquals(1, counted.openDueBetween(NOW, NOW + DAY));
+        assertTrue(counted.covers(NOW));
+        assertFalse(counted.covers(NOW + 14 * DAY));
+    }
+
+    @Test
+    void deltaForASlotBehindTheWindowCountsDownTheFoldedCounter() {
+        Task overdue = openTask(NOW - 3 * DAY);
+        TaskSummary summary = TaskSummary.of(List.of(overdue)).movedOn(NOW);
+        Task done = openTask(overdue.getDeadline());
+        done.setCompleted(true);
+
+        TaskSummary applied = summary.movedOn(NOW).plus(TaskSummary.delta(overdue, done));
+
+        assertEquals(0, applied.openDueBeforeWindow());
+        assertEquals(Map.of(), applied.openDueBySlot());
+        assertEquals(0, applied.open());
+        assertEquals(1, applied.completed());
+        assertEquals(summary.version() + 1, applied.version());
+    }
+
+    @Test
+    void deltaForASlotBeyondTheWindowCountsOnlyAsOpen() {
+        TaskSummary summary = TaskSummary.EMPTY.movedOn(NOW);
+
+        TaskSummary applied = summary.plus(TaskSummary.delta(null, openTask(NOW + 60 * DAY)));
+
+        assertEquals(1, applied.open());
+        assertEquals(Map.of(), applied.openDueBySlot());
+        assertEquals(0, applied.openDueBeforeWindow());
+    }
+
+    private static Task openTask(long deadline) {
+        Task task = new Task();
+        task.setUserId("2f1c7a4e-5b8d-4e0a-9c61-3d2b7f9e8a10");
+        task.setTitle("Send the quarterly report");
+        task.setDeadline(deadline);
+        return task;
+    }
+}
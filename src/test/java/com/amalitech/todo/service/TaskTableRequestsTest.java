@@ -0,0 +1,94 @@
+package com.amalitech.todo.service;
+
+import com.amalitech.todo.dto.request.ListTasksRequest;
+import com.amalitech.todo.dto.request.UpdateTaskRequest;
+import com.amalitech.todo.model.Task;
+import com.amalitech.todo.model.TaskTableSchema;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A version read from the summary view must be usable as the expected version of a conditional
+ * update or delete, or clients that list with view=summary can never write without a conflict.
+ */
+class TaskTableRequestsTest {
+
+    private static final String USER_ID = "2f1c7a4e-5b8d-4e0a-9c61-3d2b7f9e8a10";
+    private static final String TASK_ID = "00000001-4b7e-4c1a-8f3d-000000000001";
+    private static final long NOW = 1_800_000_000_000L;
+
+    @Test
+    void summaryViewVersionConditionsAnUpdateOnTheStoredVersion() {
+        Map<String, AttributeValue> stored = TaskTableSchema.INSTANCE.itemToMap(storedTask(), true);
+
+        long listedVersion = listedVersion(stored);
+        UpdateItemRequest update = TaskTableRequests.update(USER_ID, TASK_ID,
+                new UpdateTaskRequest("Send the quarterly report", null, null, null, listedVersion), NOW);
+
+        assertEquals(3, listedVersion);
+        assertEquals("attribute_exists(#taskId) AND #version = :expectedVersion", update.conditionExpression());
+        assertEquals(stored.get("version"), update.expressionAttributeValues().get(":expectedVersion"));
+    }
+
+    @Test
+    void summaryViewVersionConditionsADeleteOnTheStoredVersion() {
+        Map<String, AttributeValue> stored = TaskTableSchema.INSTANCE.itemToMap(storedTask(), true);
+
+        DeleteItemRequest delete = TaskTableRequests.delete(USER_ID, TASK_ID, listedVersion(stored));
+
+        assertEquals("attribute_exists(#taskId) AND #version = :expectedVersion", delete.conditionExpression());
+        assertEquals(stored.get("version"), delete.expressionAttributeValues().get(":expectedVersion"));
+    }
+
+    @Test
+    void inMemorySummaryViewVersionIsAcceptedByAnUpdate() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        repository.saveTask(storedTask());
+
+        Task listed = repository.getTasksForUser(USER_ID, new ListTasksRequest(10, null, true)).items().get(0);
+        Task updated = repository.updateTask(USER_ID, TASK_ID,
+                new UpdateTaskRequest(null, null, true, null, listed.getVersion()), NOW);
+
+        assertEquals(3, listed.getVersion());
+        assertEquals(4, updated.getVersion());
+    }
+
+    /**
+     * Reads the item through the summary projection and the API's JSON, as a client sees it.
+     */
+    private static long listedVersion(Map<String, AttributeValue> stored) {
+        QueryEnhancedRequest query = TaskTableRequests.listQuery(USER_ID, new ListTasksRequest(10, null, true));
+        Map<String, AttributeValue> projected = new HashMap<>(stored);
+        projected.keySet().retainAll(query.attributesToProject());
+        assertFalse(projected.containsKey("description"));
+        assertTrue(projected.containsKey("version"));
+
+        JsonNode listed = ServiceRegistry.objectMapper().valueToTree(TaskTableSchema.INSTANCE.mapToItem(projected));
+        return listed.path("version").asLong();
+    }
+
+    private static Task storedTask() {
+        Task task = new Task();
+        task.setUserId(USER_ID);
+        task.setTaskId(TASK_ID);
+        task.setTitle("Prepare the quarterly report");
+        task.setDescription("Collect the figures");
+        task.setCompleted(false);
+        task.setDeadline(1_900_000_000_000L);
+        task.setCreatedAt(1_700_000_000_000L);
+        task.setVersion(3);
+        task.setDeadlineBucket(1_900_000_000_000L / 60_000);
+        return task;
+    }
+}